@@ -0,0 +1,78 @@
+#!/bin/bash
+####
+# Training run for the AppCDS archive of the JVM image.
+#
+# Starts the application in <app dir> with -XX:ArchiveClassesAtExit, sends it one of each request
+# it serves and stops it. On exit the JVM writes every class it loaded to <app dir>/app-cds.jsa,
+# which later starts read with -XX:SharedArchiveFile instead of loading and verifying the classes
+# from the jars again.
+#
+# An archive only works with the JVM that created it and the jar at the same absolute path, so run
+# this where the application runs: the appcds stage of Dockerfile.jvm and Dockerfile_optimized.jvm
+# trains in /deployments with the image's java, the appcds Maven profile in target/quarkus-app with
+# the build JDK for local runs.
+#
+# Without a DynamoDB at DYNAMODB_ENDPOINT the requests fail at the connection attempt, after the
+# REST, JSON, SDK client and HTTP client classes have been loaded. With DynamoDB Local they succeed
+# and the archive also covers reading and writing customers.
+#
+# Usage: appcds-training.sh [app dir] [port]
+###
+set -euo pipefail
+
+APP_DIR=${1:-target/quarkus-app}
+PORT=${2:-8079}
+DYNAMODB_ENDPOINT=${DYNAMODB_ENDPOINT:-http://localhost:1}
+BASE=http://localhost:$PORT
+
+cd "$APP_DIR"
+rm -f app-cds.jsa
+SPOOL=$(mktemp -d)
+
+AWS_REGION=eu-west-1 AWS_ACCESS_KEY_ID=training AWS_SECRET_ACCESS_KEY=training \
+  java -XX:ArchiveClassesAtExit=app-cds.jsa \
+  -Dquarkus.http.port="$PORT" \
+  -Dquarkus.dynamodb.endpoint-override="$DYNAMODB_ENDPOINT" \
+  -Dquarkus.dynamodb.aws.credentials.type=default \
+  -Dcustomer-service.eventbridge.endpoint=http://localhost:1 \
+  -Dcustomer-service.events.spool.directory="$SPOOL" \
+  -jar "$PWD/quarkus-run.jar" > appcds-training.log 2>&1 &
+PID=$!
+trap 'kill "$PID" 2> /dev/null || true; rm -rf "$SPOOL"' EXIT
+
+for i in $(seq 600); do
+  if curl -sf -o /dev/null "$BASE/q/health/live"; then
+    break
+  fi
+  if ! kill -0 "$PID" 2> /dev/null; then
+    echo "Application exited during the training run, see $APP_DIR/appcds-training.log" >&2
+    exit 1
+  fi
+  sleep 0.1
+done
+
+CUSTOMER='{"name":"Training","email":"training@example.com","accountNumber":"ACC-0"}'
+JSON='Content-Type: application/json'
+{
+  curl -s -o /dev/null "$BASE/customers?limit=1"
+  curl -s -o /dev/null "$BASE/customers/training"
+  curl -s -o /dev/null -X POST -H "$JSON" -d "$CUSTOMER" "$BASE/customers"
+  curl -s -o /dev/null -X PUT -H "$JSON" -d "$CUSTOMER" "$BASE/customers/training"
+  curl -s -o /dev/null -X DELETE "$BASE/customers/training"
+} &
+BLOCKING=$!
+{
+  curl -s -o /dev/null "$BASE/async/customers?limit=1"
+  curl -s -o /dev/null "$BASE/async/customers/training"
+  curl -s -o /dev/null -X POST -H "$JSON" -d "$CUSTOMER" "$BASE/async/customers"
+  curl -s -o /dev/null -X DELETE "$BASE/async/customers/training"
+} &
+ASYNC=$!
+curl -s -o /dev/null "$BASE/q/health"
+curl -s -o /dev/null "$BASE/q/metrics"
+wait "$BLOCKING" "$ASYNC"
+
+kill -TERM "$PID"
+wait "$PID" || true
+test -s app-cds.jsa
+echo "AppCDS archive $APP_DIR/app-cds.jsa written"
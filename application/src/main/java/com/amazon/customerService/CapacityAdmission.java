@@ -0,0 +1,117 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService;
+
+import com.amazon.customerService.service.CapacityBudget;
+import com.amazon.customerService.service.CustomerCache;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Arrays;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+
+/**
+ * Admits requests to the resource methods marked {@link ConsumesCapacity} against the
+ * {@link CapacityBudget}, as reads or writes by the operation they name. A request that has to
+ * wait for capacity is resumed by a timer, so the wait holds no thread, and one that would wait
+ * too long fails with {@link com.amazon.customerService.service.CapacityExceededException},
+ * answered 429. Customers that are cached read nothing and are always admitted. Admission only
+ * covers a request's first call, the budget debits and paces the calls themselves.
+ */
+public class CapacityAdmission {
+
+  private static final String PERMIT = CapacityAdmission.class.getName() + ".permit";
+
+  @Inject
+  CapacityBudget budget;
+
+  @Inject
+  CustomerCache customerCache;
+
+  @Inject
+  Vertx vertx;
+
+  @ServerRequestFilter
+  public Uni<Response> admit(ContainerRequestContext request, ResourceInfo resource) {
+    ConsumesCapacity operation = operation(resource);
+    if (!budget.isEnabled() || operation == null || queriesIndex(operation, request)
+        || isCached(operation, request)) {
+      return null;
+    }
+
+    CapacityBudget.Permit permit = budget.admit(operation.value());
+    request.setProperty(PERMIT, permit);
+    Duration wait = permit.getWait();
+    if (wait.isZero()) {
+      return null;
+    }
+    return Uni
+        .createFrom()
+        .emitter(emitter -> vertx.setTimer(Math.max(1, wait.toMillis()),
+                                           timer -> emitter.complete(null)));
+  }
+
+  /**
+   * Runs once the response status and headers are known, for a page after its DynamoDB call, for
+   * the streamed table and export before most of theirs. Returns what the first call has not
+   * taken of the reservation, the later calls are debited as they are made.
+   */
+  @ServerResponseFilter
+  public void release(ContainerRequestContext request) {
+    Object permit = request.getProperty(PERMIT);
+    if (permit != null) {
+      ((CapacityBudget.Permit) permit).release();
+    }
+  }
+
+  static ConsumesCapacity operation(ResourceInfo resource) {
+    return resource.getResourceMethod() == null
+        ? null
+        : resource
+            .getResourceMethod()
+            .getAnnotation(ConsumesCapacity.class);
+  }
+
+  private static boolean queriesIndex(ConsumesCapacity operation,
+                                      ContainerRequestContext request) {
+    MultivaluedMap<String, String> parameters = request
+        .getUriInfo()
+        .getQueryParameters();
+    return Arrays
+        .stream(operation.indexParameters())
+        .anyMatch(parameters::containsKey);
+  }
+
+  private boolean isCached(ConsumesCapacity operation, ContainerRequestContext request) {
+    String id = request
+        .getUriInfo()
+        .getPathParameters()
+        .getFirst("id");
+    return id != null && "GetItem".equals(operation.value())
+        && customerCache.getIfPresent(id) != null;
+  }
+}
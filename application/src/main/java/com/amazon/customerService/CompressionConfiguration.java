@@ -0,0 +1,121 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService;
+
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.quarkus.vertx.http.HttpServerOptionsCustomizer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Offers brotli next to gzip and deflate for the responses Quarkus compresses
+ * ({@code quarkus.http.enable-compression}, {@code quarkus.http.compress-media-types}). Netty
+ * prefers brotli when a client accepts it as well as gzip. Without the brotli4j native library for
+ * the platform only gzip and deflate are offered.
+ * <p>
+ * RESTEasy Reactive only decides on compression for responses it writes in one piece, streamed
+ * ones such as pages and exports keep the {@code identity} encoding Quarkus presets. For chunked
+ * responses the decision is therefore made again when their headers are written, by media type:
+ * dropping the preset {@code Content-Encoding} leaves the choice to Netty's compressor, as it does
+ * for the responses Quarkus compresses itself.
+ */
+@Singleton
+@JBossLog
+public class CompressionConfiguration implements HttpServerOptionsCustomizer {
+
+  @ConfigProperty(name = "customer-service.compression.brotli", defaultValue = "true")
+  boolean brotli;
+
+  @ConfigProperty(name = "quarkus.http.enable-compression", defaultValue = "false")
+  boolean enabled;
+
+  @ConfigProperty(name = "quarkus.http.compress-media-types")
+  Set<String> mediaTypes;
+
+  @Override
+  public void customizeHttpServer(HttpServerOptions options) {
+    if (!options.isCompressionSupported()) {
+      return;
+    }
+
+    List<CompressionOptions> compressors = new ArrayList<>(3);
+    if (brotli) {
+      if (Brotli.isAvailable()) {
+        compressors.add(StandardCompressionOptions.brotli());
+      }
+      else {
+        log.warn("Brotli is not available on this platform, compressing with gzip and deflate: "
+                     + Brotli.cause());
+      }
+    }
+    compressors.add(StandardCompressionOptions.gzip(options.getCompressionLevel(), 15, 8));
+    compressors.add(StandardCompressionOptions.deflate(options.getCompressionLevel(), 15, 8));
+    options.setCompressors(compressors);
+  }
+
+  void compressStreams(@Observes Router router) {
+    if (!enabled) {
+      return;
+    }
+
+    router
+        .route()
+        .order(Integer.MIN_VALUE)
+        .handler(context -> {
+          HttpServerResponse response = context.response();
+          context.addHeadersEndHandler(ignored -> {
+            if (response.isChunked() && compressible(response)) {
+              response
+                  .headers()
+                  .remove(HttpHeaders.CONTENT_ENCODING)
+                  .add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+          });
+          context.next();
+        });
+  }
+
+  private boolean compressible(HttpServerResponse response) {
+    String encoding = response
+        .headers()
+        .get(HttpHeaders.CONTENT_ENCODING);
+    String contentType = response
+        .headers()
+        .get(HttpHeaders.CONTENT_TYPE);
+    if (contentType == null || !HttpHeaders.IDENTITY.toString().equals(encoding)) {
+      return false;
+    }
+    int parameters = contentType.indexOf(';');
+    return mediaTypes.contains((parameters < 0 ? contentType : contentType.substring(0, parameters))
+                                   .trim());
+  }
+}
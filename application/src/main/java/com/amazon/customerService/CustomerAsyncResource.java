@@ -0,0 +1,191 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService;
+
+import static com.amazon.customerService.CustomerResource.DEFAULT_PAGE_SIZE;
+import static com.amazon.customerService.CustomerResource.MAX_PAGE_SIZE;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerCommand;
+import com.amazon.customerService.service.CustomerAsyncService;
+import com.amazon.customerService.service.EventBridgeAsyncService;
+import com.amazon.customerService.service.EventPublisher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.vertx.http.Uncompressed;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import lombok.extern.jbosslog.JBossLog;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestMulti;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.jboss.resteasy.reactive.RestResponse;
+
+/**
+ * The core of {@link CustomerResource}, served entirely on the Vert.x event loop by the SDK async
+ * clients: the streamed table and its pages ({@code limit} and {@code cursor} only), conditional
+ * reads of a single customer, creation and unconditional deletion. There is no update,
+ * {@code If-Match}, lookup, batch import, recent registrations, export, email or account number
+ * lookup, nor {@code fields} and filter parameters. Both are always deployed, so the two models
+ * can be compared side by side on what they share.
+ */
+@Path("/async/customers")
+@JBossLog
+public class CustomerAsyncResource {
+
+  @Inject
+  CustomerAsyncService    customerService;
+  @Inject
+  EventBridgeAsyncService eventBridgeService;
+  @Inject
+  EventPublisher          eventPublisher;
+
+  @Inject
+  ObjectMapper objectMapper;
+
+  @Inject
+  Tracer tracer;
+
+  @ConsumesCapacity("Scan")
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public RestMulti<Customer> list(@RestQuery Integer limit, @RestQuery String cursor,
+                                  @RestHeader(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+    if (limit == null && cursor == null) {
+      log.info("Stream all customers");
+      return RestMulti
+          .fromMultiData(customerService.stream())
+          .build();
+    }
+
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    log.info("List customers, page size " + pageSize);
+    return CustomerResource.pageResponse(customerService
+                                             .page(pageSize, cursor)
+                                             .onFailure(IllegalArgumentException.class)
+                                             .transform(exc -> new BadRequestException(
+                                                 exc.getMessage(), exc)), ifNoneMatch);
+  }
+
+  /**
+   * Conditional like {@link CustomerResource#getSingle}.
+   */
+  @ConsumesCapacity("GetItem")
+  @GET
+  @Path("{id}")
+  @Uncompressed
+  public Uni<RestResponse<Customer>> getSingle(String id,
+                                               @RestHeader(HttpHeaders.IF_NONE_MATCH)
+                                               String ifNoneMatch) {
+    return customerService
+        .get(id)
+        .onItem()
+        .ifNull()
+        .failWith(NotFoundException::new)
+        .map(customer -> EntityTags.response(customer, ifNoneMatch));
+  }
+
+  @ConsumesCapacity("PutItem")
+  @POST
+  public Uni<Customer> add(Customer customer) {
+    UUID uuid = UUID.randomUUID();
+    customer.setId(uuid.toString());
+    customer.setRegDate(Instant.now());
+
+    return customerService
+        .add(customer)
+        .call(result -> {
+          log.info(result);
+          String jsonValue = toJson(new CustomerCommand(CustomerCommand.ADD, result.getId()));
+          log.info(jsonValue);
+          return publish(jsonValue);
+        });
+  }
+
+  @ConsumesCapacity("DeleteItem")
+  @DELETE
+  @Path("{id}")
+  public Uni<Customer> delete(String id) {
+    return customerService
+        .delete(id)
+        .onItem()
+        .ifNull()
+        .failWith(NotFoundException::new)
+        .call(deleteCustomer -> {
+          log.info("Deleted customer " + deleteCustomer);
+          return publish(toJson(new CustomerCommand(CustomerCommand.DELETE, id)));
+        });
+  }
+
+  /**
+   * Hands the event to the batching publisher, or sends it directly if its queue is full. The
+   * spool append waits for the disk, so it runs on a worker thread.
+   */
+  private Uni<Void> publish(String jsonValue) {
+    if (eventPublisher.isSpooling()) {
+      return Uni
+          .createFrom()
+          .voidItem()
+          .invoke(() -> eventPublisher.publish(jsonValue))
+          .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+    if (eventPublisher.tryPublish(jsonValue)) {
+      return Uni
+          .createFrom()
+          .voidItem();
+    }
+    return eventBridgeService.writeMessageToEventBridge(jsonValue);
+  }
+
+  private String toJson(CustomerCommand command) {
+    Span span = tracer
+        .spanBuilder("CustomerCommand serialization")
+        .startSpan();
+    try {
+      return objectMapper.writeValueAsString(command);
+    }
+    catch (JsonProcessingException exc) {
+      log.error(exc);
+      throw new RuntimeException("JsonProcessingException: ", exc);
+    }
+    finally {
+      span.end();
+    }
+  }
+}
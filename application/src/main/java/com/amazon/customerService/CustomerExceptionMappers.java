@@ -0,0 +1,91 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService;
+
+import com.amazon.customerService.service.CapacityBudget;
+import com.amazon.customerService.service.CapacityExceededException;
+import com.amazon.customerService.service.CustomerConflictException;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+/**
+ * Maps service exceptions for both customer resources.
+ */
+public class CustomerExceptionMappers {
+
+  @Inject
+  CapacityBudget capacityBudget;
+
+  /**
+   * A version mismatch is a failed precondition when the version came from {@code If-Match}, and
+   * a conflict when it came from the request body or when creating a customer whose id is taken.
+   */
+  @ServerExceptionMapper
+  public Response conflict(CustomerConflictException exc, HttpHeaders headers) {
+    Response.Status status = exc.getCurrentVersion() != null
+        && headers.getHeaderString(HttpHeaders.IF_MATCH) != null
+        ? Response.Status.PRECONDITION_FAILED
+        : Response.Status.CONFLICT;
+
+    return Response
+        .status(status)
+        .type(MediaType.TEXT_PLAIN)
+        .entity(exc.getMessage())
+        .build();
+  }
+
+  @ServerExceptionMapper
+  public Response capacityExceeded(CapacityExceededException exc) {
+    return tooManyRequests(exc.getMessage(), exc.getRetryAfter());
+  }
+
+  /**
+   * DynamoDB throttled although the {@link CapacityBudget} admitted the request, and the SDK gave
+   * up retrying. The client retries once the budget, which has just been lowered, has capacity
+   * for the operation the resource method is admitted as, see {@link ConsumesCapacity}.
+   */
+  @ServerExceptionMapper({ProvisionedThroughputExceededException.class,
+      RequestLimitExceededException.class})
+  public Response throttled(DynamoDbException exc, ResourceInfo resource) {
+    ConsumesCapacity operation = CapacityAdmission.operation(resource);
+    return tooManyRequests("DynamoDB throttled the request", operation == null
+        ? Duration.ZERO
+        : capacityBudget.retryAfter(operation.value()));
+  }
+
+  private static Response tooManyRequests(String message, Duration retryAfter) {
+    return Response
+        .status(Response.Status.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER,
+                Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfter.toMillis() + 999)))
+        .type(MediaType.TEXT_PLAIN)
+        .entity(message)
+        .build();
+  }
+}
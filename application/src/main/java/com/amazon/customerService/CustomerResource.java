@@ -19,92 +19,643 @@
 
 package com.amazon.customerService;
 
+import com.amazon.customerService.model.BatchItemResult;
 import com.amazon.customerService.model.Customer;
 import com.amazon.customerService.model.CustomerCommand;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.model.LookupResult;
+import com.amazon.customerService.service.CustomerSelection;
 import com.amazon.customerService.service.CustomerService;
-import com.amazon.customerService.service.EventBridgeService;
+import com.amazon.customerService.service.EventPublisher;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.quarkus.vertx.http.Uncompressed;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
 import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestMulti;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.jboss.resteasy.reactive.RestResponse;
+import software.amazon.awssdk.core.exception.SdkException;
 
 @Path("/customers")
+@UnlessBuildProperty(name = CustomerVirtualThreadResource.ENABLED, stringValue = "true",
+    enableIfMissing = true)
 @JBossLog
 public class CustomerResource {
 
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  public static final String NDJSON             = "application/x-ndjson";
+
+  static final int EXPORT_CHUNK_SIZE = 100;
+
+  static final int DEFAULT_PAGE_SIZE = 100;
+  static final int MAX_PAGE_SIZE     = 1000;
+
+  static final int MAX_LOOKUP_SIZE = 1000;
+
+  private static final String INCOMPLETE_CUSTOMER = "name, email and accountNumber are required";
+
   @Inject
-  CustomerService    customerService;
+  CustomerService customerService;
   @Inject
-  EventBridgeService eventBridgeService;
+  EventPublisher  eventPublisher;
 
   @Inject
   ObjectMapper objectMapper;
 
+  @Inject
+  Tracer tracer;
+
+  /**
+   * BatchWriteItem or BatchGetItem calls a single bulk request keeps in flight.
+   */
+  @ConfigProperty(name = "customer-service.batch.concurrency", defaultValue = "8")
+  int batchConcurrency;
+
+  /**
+   * Without {@code limit} or {@code cursor} the whole table is streamed as a JSON array, one scan
+   * page at a time. With either of them a single page is returned and the cursor for the next page
+   * is sent in the {@value #NEXT_CURSOR_HEADER} header. With {@code email} or
+   * {@code accountNumber} all customers with that value are returned, found with a query of the
+   * matching secondary index instead of a scan.
+   * <p>
+   * {@code fields}, a comma-separated list such as {@code id,name}, limits the customers to those
+   * fields, which are the only ones read from DynamoDB and written to the response. {@code name},
+   * {@code namePrefix} and {@code accountNumberPrefix} keep only the matching customers, filtered
+   * by DynamoDB. A page then holds the matches among {@code limit} scanned customers.
+   * {@code accountNumberPrefix} cannot be combined with {@code accountNumber}.
+   * <p>
+   * Pages and lookups carry an {@code ETag}, and answer 304 without a body when it matches
+   * {@code If-None-Match}. The streamed table has none, it is written before it is complete.
+   */
+  @ConsumesCapacity(value = "Scan", indexParameters = {"email", "accountNumber"})
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public RestMulti<Customer> list(@RestQuery Integer limit, @RestQuery String cursor,
+                                  @RestQuery String email, @RestQuery String accountNumber,
+                                  @RestQuery String fields, @RestQuery String name,
+                                  @RestQuery String namePrefix,
+                                  @RestQuery String accountNumberPrefix,
+                                  @RestHeader(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+    CustomerSelection selection;
+    try {
+      selection = CustomerSelection.of(fields, name, namePrefix, accountNumberPrefix);
+    }
+    catch (IllegalArgumentException exc) {
+      throw new BadRequestException(exc.getMessage(), exc);
+    }
+
+    if (email != null || accountNumber != null) {
+      if (email != null && accountNumber != null || limit != null || cursor != null) {
+        throw new BadRequestException("email and accountNumber cannot be combined with each "
+                                          + "other or with limit and cursor");
+      }
+      if (accountNumber != null && accountNumberPrefix != null) {
+        // DynamoDB rejects a filter on the key of the queried index
+        throw new BadRequestException("accountNumber cannot be combined with "
+                                          + "accountNumberPrefix");
+      }
+      log.info(email != null ? "Find customers by email" : "Find customers by account number");
+      return pageResponse(Uni
+                              .createFrom()
+                              .item(() -> new CustomerPage(
+                                  email != null
+                                      ? customerService.findByEmail(email, selection)
+                                      : customerService.findByAccountNumber(accountNumber,
+                                                                            selection),
+                                  null))
+                              .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()),
+                          ifNoneMatch);
+    }
+    if (limit == null && cursor == null) {
+      log.info("Stream all customers");
+      return RestMulti
+          .fromMultiData(Multi
+                             .createFrom()
+                             .resource(() -> customerService.stream(selection),
+                                       customers -> Multi
+                                           .createFrom()
+                                           .items(customers))
+                             .withFinalizer((Stream<Customer> customers) -> customers.close())
+                             .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+          .build();
+    }
+
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    log.info("List customers, page size " + pageSize);
+    Uni<CustomerPage> page = Uni
+        .createFrom()
+        .item(() -> fetchPage(pageSize, cursor, selection))
+        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+
+    return pageResponse(page, ifNoneMatch);
+  }
+
+  /**
+   * Customers registered from {@code since} inclusive to {@code until} exclusive, newest first,
+   * both ISO-8601 instants. {@code until} defaults to now and {@code since} to a day before
+   * {@code until}. Pages hold up to {@code limit} customers, and the cursor for the next page,
+   * which has to be requested with the same range, is sent in the {@value #NEXT_CURSOR_HEADER}
+   * header. Pages carry an {@code ETag} as in {@link #list}.
+   */
+  @GET
+  @Path("recent")
+  @Produces(MediaType.APPLICATION_JSON)
+  public RestMulti<Customer> recent(@RestQuery String since, @RestQuery String until,
+                                    @RestQuery Integer limit, @RestQuery String cursor,
+                                    @RestHeader(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+    Instant to = until == null ? Instant.now() : parseInstant("until", until);
+    Instant from = since == null ? to.minus(Duration.ofDays(1)) : parseInstant("since", since);
+    int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+    if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+      throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    log.info("List customers registered from " + from + " to " + to + ", page size " + pageSize);
+    Uni<CustomerPage> page = Uni
+        .createFrom()
+        .item(() -> {
+          try {
+            return customerService.registered(from, to, pageSize, cursor);
+          }
+          catch (IllegalArgumentException exc) {
+            throw new BadRequestException(exc.getMessage(), exc);
+          }
+        })
+        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+
+    return pageResponse(page, ifNoneMatch);
+  }
+
+  /**
+   * Streams the whole table as newline-delimited JSON, or as a gzip-compressed NDJSON file with
+   * {@code gzip=true}. Scan pages are only requested as the client consumes the response, so a
+   * slow reader holds back the scan instead of piling up chunks in memory.
+   */
+  @ConsumesCapacity("Scan")
+  @GET
+  @Path("export")
+  @Produces(MediaType.APPLICATION_OCTET_STREAM)
+  public RestMulti<byte[]> export(@RestQuery boolean gzip) {
+    log.info("Export all customers" + (gzip ? " (gzip)" : ""));
+
+    Multi<byte[]> chunks = Multi
+        .createFrom()
+        .resource(() -> new ExportCursor(customerService.stream(),
+                                         new NdjsonEncoder(objectMapper, gzip)),
+                  export -> Multi
+                      .createFrom()
+                      .items(export.customers)
+                      .group()
+                      .intoLists()
+                      .of(EXPORT_CHUNK_SIZE)
+                      .map(export.encoder::encode)
+                      .onCompletion()
+                      .continueWith(() -> List.of(export.encoder.finish())))
+        .withFinalizer(ExportCursor::close)
+        .select()
+        .where(chunk -> chunk.length > 0)
+        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+
+    RestMulti.SyncRestMulti.Builder<byte[]> response = RestMulti.fromMultiData(chunks);
+    if (gzip) {
+      return response
+          .header("Content-Type", "application/gzip")
+          .header("Content-Disposition", "attachment; filename=\"customers.ndjson.gz\"")
+          .build();
+    }
+    return response
+        .header("Content-Type", NDJSON)
+        .build();
+  }
+
+  /**
+   * Resolves a JSON array of up to {@value #MAX_LOOKUP_SIZE} ids. Duplicates are looked up once,
+   * in BatchGetItem chunks of {@value CustomerService#MAX_BATCH_GET_SIZE} run concurrently. The
+   * response holds one {@link LookupResult} per requested id, in request order.
+   */
+  @ConsumesCapacity("BatchGetItem")
+  @POST
+  @Path("lookup")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Uni<List<LookupResult>> lookup(List<String> ids) {
+    return lookupAll(ids);
+  }
+
+  /**
+   * Same as {@link #lookup(List)} with comma-separated ids, {@code ?ids=a,b,c}.
+   */
+  @ConsumesCapacity("BatchGetItem")
   @GET
-  public List<Customer> list() {
-    log.info("List all customers");
-    return new ArrayList<>(customerService.findAll());
+  @Path("lookup")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Uni<List<LookupResult>> lookupQuery(@RestQuery String ids) {
+    return lookupAll(ids == null ? null : Arrays.asList(ids.split(",")));
   }
 
+  /**
+   * Answers with the customer's version as {@code ETag}, or 304 without a body if
+   * {@code If-None-Match} names it. The customer usually comes from the cache, so revalidating
+   * needs no DynamoDB read. Too small to be worth compressing.
+   */
+  @ConsumesCapacity("GetItem")
   @GET
   @Path("{id}")
-  public Customer getSingle(String id) {
-    return customerService.get(id);
+  @Uncompressed
+  public RestResponse<Customer> getSingle(String id,
+                                          @RestHeader(HttpHeaders.IF_NONE_MATCH)
+                                          String ifNoneMatch) {
+    Customer customer = customerService.get(id);
+    if (customer == null) {
+      throw new NotFoundException();
+    }
+    return EntityTags.response(customer, ifNoneMatch);
   }
 
+  @ConsumesCapacity("PutItem")
   @POST
   public Customer add(Customer customer) {
 
-    Customer result = null;
+    UUID uuid = UUID.randomUUID();
+    customer.setId(uuid.toString());
+    customer.setRegDate(Instant.now());
 
-    try {
-      UUID uuid = UUID.randomUUID();
-      customer.setId(uuid.toString());
-      customer.setRegDate(Instant.now());
+    Customer result = customerService.add(customer);
+    log.info(result);
+    String jsonValue = toJson(new CustomerCommand(CustomerCommand.ADD, customer.getId()));
+    log.info(jsonValue);
+    eventPublisher.publish(jsonValue);
+
+    return result;
+  }
+
+  /**
+   * Imports customers from a JSON array or an NDJSON stream. The body is parsed as it arrives and
+   * written in chunks of {@value CustomerService#MAX_BATCH_WRITE_SIZE}, with up to
+   * {@code customer-service.batch.concurrency} chunks in flight, so large imports run in constant
+   * memory. Ids and registration dates are assigned as in {@link #add(Customer)}, and an ADD event
+   * is published for every customer written. One {@link BatchItemResult} per customer is streamed
+   * back as its chunk completes.
+   */
+  @ConsumesCapacity("BatchWriteItem")
+  @POST
+  @Path("batch")
+  @Blocking
+  @Consumes({MediaType.APPLICATION_JSON, NDJSON})
+  @Produces(MediaType.APPLICATION_JSON)
+  public Multi<BatchItemResult> addAll(InputStream body) {
+    log.info("Bulk import customers");
+    AtomicLong index = new AtomicLong();
 
-      result = customerService.add(customer);
-      log.info(result);
-      String jsonValue = objectMapper.writeValueAsString(
-          new CustomerCommand(CustomerCommand.ADD, customer.getId()));
-      log.info(jsonValue);
-      eventBridgeService.writeMessageToEventBridge(jsonValue);
+    return Multi
+        .createFrom()
+        .resource(() -> readCustomers(body),
+                  customers -> Multi
+                      .createFrom()
+                      .iterable(() -> customers))
+        .withFinalizer(this::closeQuietly)
+        .onFailure()
+        .transform(exc -> new BadRequestException("Malformed customer: " + exc.getMessage(), exc))
+        .map(customer -> new ImportRow(index.getAndIncrement(), customer))
+        .group()
+        .intoLists()
+        .of(CustomerService.MAX_BATCH_WRITE_SIZE)
+        .onItem()
+        .transformToUni(chunk -> Uni
+            .createFrom()
+            .item(() -> importChunk(chunk))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+        .merge(batchConcurrency)
+        .onItem()
+        .<BatchItemResult>disjoint()
+        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+  }
+
+  /**
+   * Replaces name, email and account number. The expected version is taken from
+   * {@code If-Match}, where a mismatch answers 412, or else from the body's {@code version},
+   * where a mismatch answers 409.
+   */
+  @ConsumesCapacity("UpdateItem")
+  @PUT
+  @Path("{id}")
+  public Customer update(String id, @RestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+                         Customer customer) {
+    if (!isComplete(customer)) {
+      throw new BadRequestException(INCOMPLETE_CUSTOMER);
     }
-    catch (JsonProcessingException exc) {
-      log.error(exc);
-      throw new RuntimeException("JsonProcessingException: ", exc);
+    if (ifMatch == null && customer.getVersion() == null) {
+      throw new BadRequestException("version or If-Match is required");
     }
+    long expectedVersion = ifMatch != null ? parseVersion(ifMatch) : customer.getVersion();
 
-    return result;
+    customer.setId(id);
+    Customer updated = customerService.update(customer, expectedVersion);
+    if (updated == null) {
+      throw new NotFoundException();
+    }
+    log.info("Updated customer " + updated);
+    eventPublisher.publish(toJson(new CustomerCommand(CustomerCommand.UPDATE, id)));
+
+    return updated;
   }
 
+  /**
+   * With {@code If-Match} the customer is only deleted at that version, otherwise answers 412.
+   */
+  @ConsumesCapacity("DeleteItem")
   @DELETE
   @Path("{id}")
-  public Customer delete(String id) {
-    Customer deleteCustomer = null;
+  public Customer delete(String id, @RestHeader(HttpHeaders.IF_MATCH) String ifMatch) {
+    Customer deleteCustomer = ifMatch == null
+        ? customerService.delete(id)
+        : customerService.delete(id, parseVersion(ifMatch));
+    if (deleteCustomer == null) {
+      throw new NotFoundException();
+    }
+    log.info("Deleted customer " + deleteCustomer);
+    eventPublisher.publish(toJson(new CustomerCommand(CustomerCommand.DELETE, id)));
+
+    return deleteCustomer;
+
+  }
+
+  /**
+   * Streams the page with its {@code ETag} and next cursor as headers. If {@code If-None-Match}
+   * names the tag, the page fails before its first item with a 304 instead, which an empty stream
+   * could not answer, so nothing is serialized.
+   */
+  static RestMulti<Customer> pageResponse(Uni<CustomerPage> page, String ifNoneMatch) {
+    return RestMulti.fromUniResponse(page.map(result -> new TaggedPage(result, ifNoneMatch)),
+                                     tagged -> Multi
+                                         .createFrom()
+                                         .iterable(tagged.page.getItems()),
+                                     tagged -> tagged.page.getNextCursor() == null
+                                         ? Map.of(HttpHeaders.ETAG, List.of(tagged.tag))
+                                         : Map.of(HttpHeaders.ETAG, List.of(tagged.tag),
+                                                  NEXT_CURSOR_HEADER,
+                                                  List.of(tagged.page.getNextCursor())));
+  }
+
+  private static class TaggedPage {
+
+    final CustomerPage page;
+    final String       tag;
+
+    TaggedPage(CustomerPage page, String ifNoneMatch) {
+      this.page = page;
+      this.tag  = EntityTags.of(page);
+      if (EntityTags.matches(ifNoneMatch, tag)) {
+        throw EntityTags.notModified(tag);
+      }
+    }
+  }
+
+  private static class ExportCursor {
+
+    final Stream<Customer> customers;
+    final NdjsonEncoder    encoder;
+
+    ExportCursor(Stream<Customer> customers, NdjsonEncoder encoder) {
+      this.customers = customers;
+      this.encoder   = encoder;
+    }
+
+    void close() {
+      customers.close();
+      encoder.close();
+    }
+  }
+
+  private static class ImportRow {
+
+    final long     index;
+    final Customer customer;
+    final String   error;
+
+    ImportRow(long index, Customer customer) {
+      this.index    = index;
+      this.customer = customer;
+      this.error    = isComplete(customer) ? null : INCOMPLETE_CUSTOMER;
+
+      if (error == null) {
+        customer.setId(UUID
+                           .randomUUID()
+                           .toString());
+        customer.setRegDate(Instant.now());
+      }
+    }
+
+    BatchItemResult result(String error) {
+      return error == null
+          ? new BatchItemResult(index, customer.getId(), BatchItemResult.CREATED, null)
+          : new BatchItemResult(index, customer == null ? null : customer.getId(),
+                                BatchItemResult.FAILED, error);
+    }
+  }
+
+  private static boolean isComplete(Customer customer) {
+    return customer != null
+        && customer.getName() != null
+        && customer.getEmail() != null
+        && customer.getAccountNumber() != null;
+  }
+
+  private static Instant parseInstant(String name, String value) {
+    try {
+      return Instant.parse(value);
+    }
+    catch (DateTimeParseException exc) {
+      throw new BadRequestException(name + " must be an ISO-8601 instant", exc);
+    }
+  }
+
+  /**
+   * Accepts the version as a plain or quoted entity tag, {@code 3} or {@code "3"}.
+   */
+  private static long parseVersion(String ifMatch) {
+    try {
+      return Long.parseLong(ifMatch
+                                .trim()
+                                .replace("\"", ""));
+    }
+    catch (NumberFormatException exc) {
+      throw new BadRequestException("If-Match must be a customer version", exc);
+    }
+  }
+
+  private MappingIterator<Customer> readCustomers(InputStream body) {
+    try {
+      return objectMapper
+          .readerFor(Customer.class)
+          .readValues(body);
+    }
+    catch (IOException exc) {
+      throw new UncheckedIOException(exc);
+    }
+  }
+
+  private void closeQuietly(MappingIterator<Customer> customers) {
+    try {
+      customers.close();
+    }
+    catch (IOException exc) {
+      log.warn("Cannot close import body", exc);
+    }
+  }
 
+  /**
+   * Writes the valid customers of a chunk and publishes their events. A failed call fails every
+   * customer of the chunk, without affecting the others.
+   */
+  private List<BatchItemResult> importChunk(List<ImportRow> chunk) {
+    List<Customer> customers = chunk
+        .stream()
+        .filter(row -> row.error == null)
+        .map(row -> row.customer)
+        .collect(Collectors.toList());
+
+    Set<String> unprocessed;
+    String failure = null;
     try {
-      deleteCustomer = customerService.delete(id);
-      log.info("Deleted customer " + deleteCustomer);
-      String jsonValue = objectMapper.writeValueAsString(
-          new CustomerCommand(CustomerCommand.DELETE, id));
-      eventBridgeService.writeMessageToEventBridge(jsonValue);
+      unprocessed = customers.isEmpty() ? Set.of() : customerService.addAll(customers);
+    }
+    catch (SdkException exc) {
+      log.error("Bulk import chunk failed", exc);
+      unprocessed = Set.of();
+      failure     = exc.getMessage();
+    }
+
+    List<BatchItemResult> results = new ArrayList<>(chunk.size());
+    List<String> events = new ArrayList<>(chunk.size());
+    for (ImportRow row : chunk) {
+      if (row.error != null) {
+        results.add(row.result(row.error));
+      }
+      else if (failure != null) {
+        results.add(row.result(failure));
+      }
+      else if (unprocessed.contains(row.customer.getId())) {
+        results.add(row.result("Unprocessed after retries"));
+      }
+      else {
+        events.add(toJson(new CustomerCommand(CustomerCommand.ADD, row.customer.getId())));
+        results.add(row.result(null));
+      }
+    }
+    eventPublisher.publishAll(events);
+    return results;
+  }
+
+  private Uni<List<LookupResult>> lookupAll(List<String> ids) {
+    if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+      throw new BadRequestException("Between 1 and " + MAX_LOOKUP_SIZE + " ids are required");
+    }
+    if (ids
+        .stream()
+        .anyMatch(id -> id == null || id.isBlank())) {
+      throw new BadRequestException("Ids must not be blank");
+    }
+    log.info("Look up " + ids.size() + " customers");
+
+    return Multi
+        .createFrom()
+        .iterable(ids
+                      .stream()
+                      .distinct()
+                      .collect(Collectors.toList()))
+        .group()
+        .intoLists()
+        .of(CustomerService.MAX_BATCH_GET_SIZE)
+        .onItem()
+        .transformToUni(chunk -> Uni
+            .createFrom()
+            .item(() -> customerService.getAll(chunk))
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+        .merge(batchConcurrency)
+        .collect()
+        .in(HashMap<String, Optional<Customer>>::new, Map::putAll)
+        .map(customers -> ids
+            .stream()
+            .map(id -> lookupResult(id, customers.get(id)))
+            .collect(Collectors.toList()));
+  }
+
+  private static LookupResult lookupResult(String id, Optional<Customer> customer) {
+    if (customer == null) {
+      return new LookupResult(id, LookupResult.UNAVAILABLE, null);
+    }
+    return customer
+        .map(found -> new LookupResult(id, LookupResult.FOUND, found))
+        .orElseGet(() -> new LookupResult(id, LookupResult.NOT_FOUND, null));
+  }
+
+  private String toJson(CustomerCommand command) {
+    Span span = tracer
+        .spanBuilder("CustomerCommand serialization")
+        .startSpan();
+    try {
+      return objectMapper.writeValueAsString(command);
     }
     catch (JsonProcessingException exc) {
       log.error(exc);
       throw new RuntimeException("JsonProcessingException: ", exc);
     }
+    finally {
+      span.end();
+    }
+  }
 
-    return deleteCustomer;
-
+  private CustomerPage fetchPage(int limit, String cursor, CustomerSelection selection) {
+    try {
+      return customerService.page(limit, cursor, selection);
+    }
+    catch (IllegalArgumentException exc) {
+      throw new BadRequestException(exc.getMessage(), exc);
+    }
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService;
+
+import com.amazon.customerService.model.Customer;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.vertx.http.Uncompressed;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.jboss.resteasy.reactive.RestHeader;
+import org.jboss.resteasy.reactive.RestResponse;
+
+/**
+ * Replaces {@link CustomerResource} when the application is built with
+ * {@code -Dcustomer-service.virtual-threads.enabled=true}. The single-customer endpoints then run
+ * on a virtual thread per request instead of the worker pool, so concurrency is bounded by the
+ * DynamoDB connection pool rather than by {@code quarkus.thread-pool.max-threads}. The streaming
+ * and batch endpoints are inherited unchanged, they already hand their work to the worker pool.
+ * <p>
+ * Quarkus refuses {@code @RunOnVirtualThread} unless both the build and the runtime JVM support
+ * virtual threads, so this mode needs Java 21 where the default build runs on Java 17.
+ */
+@Path("/customers")
+@IfBuildProperty(name = CustomerVirtualThreadResource.ENABLED, stringValue = "true")
+public class CustomerVirtualThreadResource extends CustomerResource {
+
+  static final String ENABLED = "customer-service.virtual-threads.enabled";
+
+  @ConsumesCapacity("GetItem")
+  @GET
+  @Path("{id}")
+  @Uncompressed
+  @RunOnVirtualThread
+  @Override
+  public RestResponse<Customer> getSingle(String id,
+                                          @RestHeader(HttpHeaders.IF_NONE_MATCH)
+                                          String ifNoneMatch) {
+    return super.getSingle(id, ifNoneMatch);
+  }
+
+  @ConsumesCapacity("PutItem")
+  @POST
+  @RunOnVirtualThread
+  @Override
+  public Customer add(Customer customer) {
+    return super.add(customer);
+  }
+
+  @ConsumesCapacity("UpdateItem")
+  @PUT
+  @Path("{id}")
+  @RunOnVirtualThread
+  @Override
+  public Customer update(String id, @RestHeader(HttpHeaders.IF_MATCH) String ifMatch,
+                         Customer customer) {
+    return super.update(id, ifMatch, customer);
+  }
+
+  @ConsumesCapacity("DeleteItem")
+  @DELETE
+  @Path("{id}")
+  @RunOnVirtualThread
+  @Override
+  public Customer delete(String id, @RestHeader(HttpHeaders.IF_MATCH) String ifMatch) {
+    return super.delete(id, ifMatch);
+  }
+}
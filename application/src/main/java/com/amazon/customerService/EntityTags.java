@@ -0,0 +1,126 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestResponse;
+
+/**
+ * Entity tags for customer reads. A customer's tag is its version, which every update increments,
+ * so it is the same tag {@code If-Match} takes and is known without serializing the customer. It is
+ * strong because single customers are never compressed. A page's tag is a digest of the customers
+ * on it, as far as their fields were selected, and of its cursor. It is weak because the same tag
+ * is sent for the identity, gzip and brotli encodings of the page.
+ */
+final class EntityTags {
+
+  private EntityTags() {
+  }
+
+  /**
+   * The customer with its tag, or 304 without a body if {@code If-None-Match} names the tag.
+   */
+  static RestResponse<Customer> response(Customer customer, String ifNoneMatch) {
+    String tag = of(customer);
+    return (matches(ifNoneMatch, tag)
+        ? RestResponse.ResponseBuilder.<Customer>notModified()
+        : RestResponse.ResponseBuilder.ok(customer))
+        .header(HttpHeaders.ETAG, tag)
+        .build();
+  }
+
+  /**
+   * 304 with the tag, for responses that cannot answer it as a value, such as streamed pages.
+   */
+  static WebApplicationException notModified(String tag) {
+    return new WebApplicationException(Response
+                                           .notModified()
+                                           .header(HttpHeaders.ETAG, tag)
+                                           .build());
+  }
+
+  static String of(Customer customer) {
+    return "\"" + (customer.getVersion() == null ? 0 : customer.getVersion()) + "\"";
+  }
+
+  static String of(CustomerPage page) {
+    MessageDigest digest = sha256();
+    for (Customer customer : page.getItems()) {
+      update(digest, customer.getId());
+      update(digest, customer.getName());
+      update(digest, customer.getEmail());
+      update(digest, customer.getAccountNumber());
+      update(digest, customer.getRegDate());
+      update(digest, customer.getVersion());
+    }
+    update(digest, page.getNextCursor());
+    return "W/\"" + Base64
+        .getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(Arrays.copyOf(digest.digest(), 16)) + "\"";
+  }
+
+  /**
+   * Whether {@code If-None-Match} names {@code tag}, comparing weakly as RFC 9110 asks for.
+   */
+  static boolean matches(String ifNoneMatch, String tag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.equals("*") || opaque(trimmed).equals(opaque(tag))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String opaque(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+
+  private static void update(MessageDigest digest, Object value) {
+    if (value != null) {
+      digest.update(value
+                        .toString()
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException exc) {
+      throw new IllegalStateException(exc);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.Set;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Publishes histogram buckets for request and AWS call latencies, so that percentiles can be
+ * aggregated across pods in Prometheus.
+ */
+@Singleton
+public class MetricsConfiguration {
+
+  private static final Set<String> LATENCY_HISTOGRAMS = Set.of(
+      "http.server.requests", "aws.sdk.calls", "aws.sdk.attempts", "aws.sdk.http.acquire");
+
+  @ConfigProperty(name = "customer-service.metrics.histograms", defaultValue = "true")
+  boolean histograms;
+
+  @Produces
+  @Singleton
+  public MeterFilter latencyHistograms() {
+    return new MeterFilter() {
+      @Override
+      public DistributionStatisticConfig configure(Meter.Id id,
+                                                   DistributionStatisticConfig config) {
+        if (!histograms || !LATENCY_HISTOGRAMS.contains(id.getName())) {
+          return config;
+        }
+        return DistributionStatisticConfig
+            .builder()
+            .percentilesHistogram(true)
+            .minimumExpectedValue((double) Duration
+                .ofMillis(1)
+                .toNanos())
+            .maximumExpectedValue((double) Duration
+                .ofSeconds(30)
+                .toNanos())
+            .build()
+            .merge(config);
+      }
+    };
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService;
+
+import com.amazon.customerService.model.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Turns batches of customers into newline-delimited JSON chunks, optionally as one continuous
+ * gzip stream. Every chunk is flushed, so the client can decode the export as it arrives.
+ */
+class NdjsonEncoder implements AutoCloseable {
+
+  private final ObjectMapper          objectMapper;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+  private final GZIPOutputStream      gzip;
+
+  NdjsonEncoder(ObjectMapper objectMapper, boolean gzip) {
+    this.objectMapper = objectMapper;
+    try {
+      this.gzip = gzip ? new GZIPOutputStream(buffer, 8 * 1024, true) : null;
+    }
+    catch (IOException exc) {
+      throw new UncheckedIOException(exc);
+    }
+  }
+
+  byte[] encode(List<Customer> customers) {
+    try {
+      for (Customer customer : customers) {
+        byte[] line = objectMapper.writeValueAsBytes(customer);
+        if (gzip == null) {
+          buffer.write(line);
+          buffer.write('\n');
+        }
+        else {
+          gzip.write(line);
+          gzip.write('\n');
+        }
+      }
+      if (gzip != null) {
+        gzip.flush();
+      }
+      return drain();
+    }
+    catch (IOException exc) {
+      throw new UncheckedIOException(exc);
+    }
+  }
+
+  /**
+   * @return the gzip trailer, or nothing for plain NDJSON
+   */
+  byte[] finish() {
+    if (gzip == null) {
+      return new byte[0];
+    }
+    try {
+      gzip.finish();
+      return drain();
+    }
+    catch (IOException exc) {
+      throw new UncheckedIOException(exc);
+    }
+  }
+
+  private byte[] drain() {
+    byte[] chunk = buffer.toByteArray();
+    buffer.reset();
+    return chunk;
+  }
+
+  @Override
+  public void close() {
+    if (gzip != null) {
+      try {
+        gzip.close();
+      }
+      catch (IOException exc) {
+        // nothing left to flush to anyone
+      }
+    }
+  }
+}
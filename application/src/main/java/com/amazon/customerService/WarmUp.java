@@ -0,0 +1,245 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerCommand;
+import com.amazon.customerService.model.CustomerPage;
+import com.amazon.customerService.service.CustomerAsyncService;
+import com.amazon.customerService.service.CustomerCodec;
+import com.amazon.customerService.service.CustomerService;
+import com.amazon.customerService.service.EventBridgeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+
+/**
+ * Warms the pod up before it takes traffic, and keeps its readiness check down until then so the
+ * ALB only registers it afterwards. On startup a background thread
+ * <ol>
+ *   <li>looks up a customer that does not exist with the blocking and the async DynamoDB client,
+ *   which resolves the web identity credentials and opens the first connection of each client</li>
+ *   <li>sends EventBridge an empty PutEvents with both clients. EventBridge rejects it without
+ *   publishing anything, after the credentials, signing and connection are set up</li>
+ *   <li>encodes, decodes and serializes synthetic customers, pages and events
+ *   {@code customer-service.warm-up.iterations} times, so the codec and Jackson are loaded and
+ *   compiled</li>
+ *   <li>replays {@code customer-service.warm-up.requests} lookups of missing customers and
+ *   one-item lists against the application's own HTTP port, blocking and async, which runs the
+ *   whole request path. They only read, but each round costs four table reads, which every pod
+ *   start would take from the provisioned capacity, so they are off by default.</li>
+ * </ol>
+ * A failing step is logged and skipped, a pod that cannot reach DynamoDB should not be held back
+ * by its warm-up. If the warm-up takes longer than {@code customer-service.warm-up.timeout}, the
+ * check reports ready anyway and the warm-up finishes in the background.
+ */
+@ApplicationScoped
+@Readiness
+@JBossLog
+public class WarmUp implements HealthCheck {
+
+  @ConfigProperty(name = "customer-service.warm-up.enabled", defaultValue = "true")
+  boolean enabled;
+
+  @ConfigProperty(name = "customer-service.warm-up.iterations", defaultValue = "2000")
+  int iterations;
+
+  @ConfigProperty(name = "customer-service.warm-up.requests", defaultValue = "0")
+  int requests;
+
+  @ConfigProperty(name = "customer-service.warm-up.timeout", defaultValue = "30s")
+  Duration timeout;
+
+  @ConfigProperty(name = "quarkus.http.port", defaultValue = "8080")
+  int httpPort;
+
+  @Inject
+  CustomerService customerService;
+
+  @Inject
+  CustomerAsyncService customerAsyncService;
+
+  @Inject
+  EventBridgeClient eventBridgeClient;
+
+  @Inject
+  EventBridgeAsyncClient eventBridgeAsyncClient;
+
+  @Inject
+  ObjectMapper objectMapper;
+
+  private volatile long started;
+  private volatile long finished = -1;
+
+  void onStart(@Observes StartupEvent event) {
+    started = System.nanoTime();
+    if (!enabled) {
+      finished = started;
+      return;
+    }
+
+    Thread thread = new Thread(this::run, "warm-up");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public HealthCheckResponse call() {
+    long now = System.nanoTime();
+    long done = finished;
+    boolean timedOut = done < 0 && now - started > timeout.toNanos();
+    return HealthCheckResponse
+        .named("warm-up")
+        .status(done >= 0 || timedOut)
+        .withData("state", done >= 0 ? "finished" : timedOut ? "timed out" : "running")
+        .withData("millis", TimeUnit.NANOSECONDS.toMillis((done >= 0 ? done : now) - started))
+        .build();
+  }
+
+  private void run() {
+    step("DynamoDB", this::dynamoDb);
+    step("EventBridge", this::eventBridge);
+    step("serialization", this::serialization);
+    if (requests > 0) {
+      step("requests", this::requests);
+    }
+    finished = System.nanoTime();
+    log.info("Warm-up finished in " + TimeUnit.NANOSECONDS.toMillis(finished - started) + " ms");
+  }
+
+  private void step(String name, Step step) {
+    long stepStarted = System.nanoTime();
+    try {
+      step.run();
+      log.debug("Warm-up of " + name + " took "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stepStarted) + " ms");
+    }
+    catch (InterruptedException exc) {
+      Thread
+          .currentThread()
+          .interrupt();
+    }
+    catch (Exception exc) {
+      log.warn("Warm-up of " + name + " failed: " + exc.getMessage());
+    }
+  }
+
+  private void dynamoDb() {
+    customerService.get(missingId());
+    customerAsyncService
+        .get(missingId())
+        .await()
+        .atMost(timeout);
+  }
+
+  /**
+   * PutEvents takes one to ten entries, so an empty call fails validation and publishes nothing.
+   */
+  private void eventBridge() {
+    PutEventsRequest empty = PutEventsRequest
+        .builder()
+        .entries(List.of())
+        .build();
+    try {
+      eventBridgeClient.putEvents(empty);
+    }
+    catch (SdkException exc) {
+      log.debug("Empty PutEvents answered " + exc.getMessage());
+    }
+    eventBridgeAsyncClient
+        .putEvents(empty)
+        .handle((response, exc) -> response)
+        .join();
+  }
+
+  private void serialization() throws JsonProcessingException {
+    Instant now = Instant
+        .now()
+        .truncatedTo(ChronoUnit.MILLIS);
+    for (int i = 0; i < iterations; i++) {
+      Customer customer = new Customer();
+      customer.setId(UUID
+                         .randomUUID()
+                         .toString());
+      customer.setName("Warm-up " + i);
+      customer.setEmail("warm-up-" + i + "@example.com");
+      customer.setAccountNumber("ACC-" + i);
+      customer.setRegDate(now.minusMillis(i));
+      customer.setVersion((long) i);
+
+      Customer decoded = CustomerCodec.decode(CustomerCodec.encode(customer, i % 2 == 0));
+      String json = objectMapper.writeValueAsString(new CustomerPage(List.of(decoded), null));
+      objectMapper.readValue(objectMapper.writeValueAsString(customer), Customer.class);
+      String event = objectMapper.writeValueAsString(new CustomerCommand(CustomerCommand.ADD,
+                                                                         customer.getId()));
+      EventBridgeService.putEventsRequest(List.of(event, json));
+    }
+  }
+
+  private void requests() throws IOException, InterruptedException {
+    HttpClient client = HttpClient
+        .newBuilder()
+        .connectTimeout(timeout)
+        .build();
+    URI base = URI.create("http://localhost:" + httpPort);
+    for (int i = 0; i < requests; i++) {
+      for (String path : List.of("/customers/" + missingId(), "/async/customers/" + missingId(),
+                                 "/customers?limit=1", "/async/customers?limit=1")) {
+        client.send(HttpRequest
+                        .newBuilder(base.resolve(path))
+                        .timeout(timeout)
+                        .build(), HttpResponse.BodyHandlers.discarding());
+      }
+    }
+  }
+
+  private static String missingId() {
+    return "warm-up-" + UUID.randomUUID();
+  }
+
+  @FunctionalInterface
+  private interface Step {
+
+    void run() throws Exception;
+  }
+}
@@ -19,23 +19,20 @@
 
 package com.amazon.customerService.model;
 
-import static com.amazon.customerService.service.AbstractService.ACCOUNT_NUMBER_COLUMN;
-import static com.amazon.customerService.service.AbstractService.EMAIL_COLUMN;
-import static com.amazon.customerService.service.AbstractService.ID_COLUMN;
-import static com.amazon.customerService.service.AbstractService.NAME_COLUMN;
-import static com.amazon.customerService.service.AbstractService.REGISTRATION_DATE_COLUMN;
-import static java.time.ZoneOffset.UTC;
-import static java.time.format.DateTimeFormatter.ISO_DATE_TIME;
-
+import com.amazon.customerService.service.CustomerCodec;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.util.Map;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+/**
+ * Fields left out of a list request's {@code fields} are {@code null} and not serialized.
+ */
 @RegisterForReflection
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
 @NoArgsConstructor
 public class Customer {
@@ -43,41 +40,22 @@ public class Customer {
   private String id, name, email, accountNumber;
   private Instant regDate;
 
+  /**
+   * Incremented on every update, {@code 0} for customers stored before versioning.
+   */
+  private Long version;
+
   public Customer(final Customer customer) {
     this.id            = customer.id;
     this.name          = customer.name;
     this.accountNumber = customer.accountNumber;
     this.email         = customer.email;
     this.regDate       = customer.regDate;
+    this.version       = customer.version;
   }
 
   public static Customer from(Map<String, AttributeValue> item) {
-    Customer customer = new Customer();
-
-    customer.setAccountNumber(item
-                                  .get(ACCOUNT_NUMBER_COLUMN)
-                                  .s());
-    customer.setEmail(item
-                          .get(EMAIL_COLUMN)
-                          .s());
-    customer.setName(item
-                         .get(NAME_COLUMN)
-                         .s());
-    customer.setAccountNumber(item
-                                  .get(ACCOUNT_NUMBER_COLUMN)
-                                  .s());
-    customer.setId(item
-                       .get(ID_COLUMN)
-                       .s());
-
-    customer.setRegDate(LocalDateTime
-                            .parse(item
-                                       .get(REGISTRATION_DATE_COLUMN)
-                                       .s(), ISO_DATE_TIME)
-                            .toInstant(UTC));
-
-    return customer;
+    return CustomerCodec.decode(item);
   }
 
-
 }
@@ -20,24 +20,54 @@
 package com.amazon.customerService.model;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+/**
+ * The event published for every change. It carries the W3C trace context of the request that
+ * made the change, so consumers can continue its trace.
+ */
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @RegisterForReflection
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CustomerCommand {
 
   public static final String DELETE = "Delete";
 
   public static final String ADD = "Add";
 
+  public static final String UPDATE = "Update";
+
+  private static final TextMapPropagator PROPAGATOR = W3CTraceContextPropagator.getInstance();
+
   private  String command;
 
   private  String customerId;
 
+  private String traceparent;
+
+  private String tracestate;
+
+  /**
+   * Takes the trace context from the current span, if there is one.
+   */
+  public CustomerCommand(String command, String customerId) {
+    this.command    = command;
+    this.customerId = customerId;
+    PROPAGATOR.inject(Context.current(), this, (event, key, value) -> {
+      if (key.equals("traceparent")) {
+        event.traceparent = value;
+      }
+      else if (key.equals("tracestate")) {
+        event.tracestate = value;
+      }
+    });
+  }
 
 }
@@ -19,17 +19,28 @@
 
 package com.amazon.customerService.service;
 
-import static java.time.ZoneOffset.UTC;
-
 import com.amazon.customerService.model.Customer;
-import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 public class AbstractService {
 
@@ -39,10 +50,29 @@ public class AbstractService {
     public static final String EMAIL_COLUMN             = "Email";
     public static final String ACCOUNT_NUMBER_COLUMN    = "AccountNumber";
     public static final String REGISTRATION_DATE_COLUMN = "RegistrationDate";
+    public static final String VERSION_COLUMN           = "Version";
+    public static final String REGISTRATION_DAY_COLUMN  = "RegistrationDay";
+    public static final String REGISTRATION_TIME_COLUMN = "RegistrationTime";
+
+    /**
+     * Global secondary indexes keyed by email and by account number. They project all attributes,
+     * so a lookup needs no further read of the table.
+     */
+    public static final String EMAIL_INDEX          = "EmailIndex";
+    public static final String ACCOUNT_NUMBER_INDEX = "AccountNumberIndex";
+
+    /**
+     * Global secondary index of customers by registration, partitioned by UTC day so that each
+     * day's writes go to their own partition, and sorted by epoch millis within the day.
+     */
+    public static final String REGISTRATION_INDEX = "RegistrationIndex";
 
-    private final DateTimeFormatter formatter = DateTimeFormatter
-            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
-            .withZone(UTC);
+    /**
+     * Store registration dates as epoch-millis numbers instead of strings, see
+     * {@link CustomerCodec}.
+     */
+    @ConfigProperty(name = "customer-service.codec.epoch-millis-dates", defaultValue = "false")
+    boolean epochMillisDates;
 
     public AbstractService() {
     }
@@ -52,76 +82,245 @@ public class AbstractService {
     }
 
     protected ScanRequest scanRequest() {
+        return scanRequest(null, null);
+    }
+
+    protected ScanRequest scanRequest(Integer limit, Map<String, AttributeValue> exclusiveStartKey) {
+        return scanRequest(limit, exclusiveStartKey, CustomerSelection.ALL);
+    }
+
+    protected ScanRequest scanRequest(Integer limit, Map<String, AttributeValue> exclusiveStartKey,
+                                      CustomerSelection selection) {
         return ScanRequest
             .builder()
             .tableName(getTableName())
-            .attributesToGet(ID_COLUMN, NAME_COLUMN, EMAIL_COLUMN, ACCOUNT_NUMBER_COLUMN,
-                             REGISTRATION_DATE_COLUMN)
+            .projectionExpression(selection.projection())
+            .filterExpression(selection.filter())
+            .expressionAttributeNames(selection.names())
+            .expressionAttributeValues(selection.values())
+            .limit(limit)
+            .exclusiveStartKey(exclusiveStartKey)
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
             .build();
     }
 
-    protected PutItemRequest putRequest(Customer customer) {
-        Map<String, AttributeValue> item = new HashMap<>();
-
-        item.put(ID_COLUMN, AttributeValue
+    /**
+     * Finds the customers whose {@code column} is {@code value} in the index keyed by that column.
+     * Index reads are eventually consistent.
+     */
+    protected QueryRequest queryRequest(String index, String column, String value,
+                                        CustomerSelection selection) {
+        Map<String, String> names = new HashMap<>(selection.names());
+        names.put("#key", column);
+        Map<String, AttributeValue> values = new HashMap<>();
+        if (selection.values() != null) {
+            values.putAll(selection.values());
+        }
+        values.put(":value", AttributeValue
             .builder()
-            .s(customer.getId())
+            .s(value)
             .build());
 
-        item.put(NAME_COLUMN, AttributeValue
+        return QueryRequest
+            .builder()
+            .tableName(getTableName())
+            .indexName(index)
+            .keyConditionExpression("#key = :value")
+            .projectionExpression(selection.projection())
+            .filterExpression(selection.filter())
+            .expressionAttributeNames(names)
+            .expressionAttributeValues(values)
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+            .build();
+    }
+
+    /**
+     * Customers registered on {@code day} from {@code since} inclusive to {@code until} exclusive,
+     * newest first, continuing after {@code exclusiveStartKey} if given.
+     */
+    protected QueryRequest registeredRequest(String day, Instant since, Instant until, int limit,
+                                             Map<String, AttributeValue> exclusiveStartKey) {
+        return QueryRequest
+            .builder()
+            .tableName(getTableName())
+            .indexName(REGISTRATION_INDEX)
+            .keyConditionExpression("#day = :day AND #time BETWEEN :since AND :last")
+            .expressionAttributeNames(Map.of("#day", REGISTRATION_DAY_COLUMN,
+                                             "#time", REGISTRATION_TIME_COLUMN))
+            .expressionAttributeValues(Map.of(
+                ":day", AttributeValue.fromS(day),
+                ":since", AttributeValue.fromN(Long.toString(since.toEpochMilli())),
+                ":last", AttributeValue.fromN(Long.toString(until.toEpochMilli() - 1))))
+            .scanIndexForward(false)
+            .limit(limit)
+            .exclusiveStartKey(exclusiveStartKey)
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+            .build();
+    }
+
+    /**
+     * Creates the customer, failing with {@code ConditionalCheckFailedException} if the id is
+     * taken.
+     */
+    protected PutItemRequest putRequest(Customer customer) {
+        return PutItemRequest
+            .builder()
+            .tableName(getTableName())
+            .item(item(customer))
+            .conditionExpression("attribute_not_exists(#id)")
+            .expressionAttributeNames(Map.of("#id", ID_COLUMN))
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+            .build();
+    }
+
+    /**
+     * Replaces name, email and account number and increments the version, provided the stored
+     * customer is at {@code expectedVersion}. Returns the updated item.
+     */
+    protected UpdateItemRequest updateRequest(Customer customer, long expectedVersion) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#id", ID_COLUMN);
+        names.put("#name", NAME_COLUMN);
+        names.put("#email", EMAIL_COLUMN);
+        names.put("#accountNumber", ACCOUNT_NUMBER_COLUMN);
+        names.put("#version", VERSION_COLUMN);
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":name", AttributeValue
             .builder()
             .s(customer.getName())
             .build());
-
-        item.put(EMAIL_COLUMN, AttributeValue
+        values.put(":email", AttributeValue
             .builder()
             .s(customer.getEmail())
             .build());
+        values.put(":accountNumber", AttributeValue
+            .builder()
+            .s(customer.getAccountNumber())
+            .build());
+        values.put(":next", AttributeValue
+            .builder()
+            .n(Long.toString(expectedVersion + 1))
+            .build());
+        if (expectedVersion > 0) {
+            values.put(":expected", AttributeValue
+                .builder()
+                .n(Long.toString(expectedVersion))
+                .build());
+        }
 
-        item.put(ACCOUNT_NUMBER_COLUMN,
-                 AttributeValue
-                     .builder()
-                     .s(customer.getAccountNumber())
-                     .build());
-
-        item.put(REGISTRATION_DATE_COLUMN,
-                 AttributeValue
-                     .builder()
-                     .s(formatter.format(customer.getRegDate()))
-                     .build());
-
-        return PutItemRequest
+        return UpdateItemRequest
             .builder()
             .tableName(getTableName())
-            .item(item)
+            .key(key(customer.getId()))
+            .updateExpression("SET #name = :name, #email = :email, "
+                                  + "#accountNumber = :accountNumber, #version = :next")
+            .conditionExpression(versionCondition(expectedVersion))
+            .expressionAttributeNames(names)
+            .expressionAttributeValues(values)
+            .returnValues(ReturnValue.ALL_NEW)
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
             .build();
     }
 
-    protected DeleteItemRequest deleteRequest(String id) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put(ID_COLUMN, AttributeValue
+    /**
+     * At most {@value CustomerService#MAX_BATCH_WRITE_SIZE} customers fit into one request.
+     */
+    protected BatchWriteItemRequest batchPutRequest(Collection<Customer> customers) {
+        List<WriteRequest> writes = customers
+            .stream()
+            .map(customer -> WriteRequest
+                .builder()
+                .putRequest(PutRequest
+                                .builder()
+                                .item(item(customer))
+                                .build())
+                .build())
+            .collect(Collectors.toList());
+
+        return BatchWriteItemRequest
             .builder()
-            .s(id)
-            .build());
+            .requestItems(Map.of(getTableName(), writes))
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+            .build();
+    }
+
+    protected Map<String, AttributeValue> item(Customer customer) {
+        return CustomerCodec.encode(customer, epochMillisDates);
+    }
 
+    /**
+     * Deletes in one call and returns the deleted item, if there was one.
+     */
+    protected DeleteItemRequest deleteRequest(String id) {
         return DeleteItemRequest
             .builder()
             .tableName(TABLE_NAME)
-            .key(key)
+            .key(key(id))
+            .returnValues(ReturnValue.ALL_OLD)
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
             .build();
     }
 
+    /**
+     * Like {@link #deleteRequest(String)}, provided the stored customer is at
+     * {@code expectedVersion}.
+     */
+    protected DeleteItemRequest deleteRequest(String id, long expectedVersion) {
+        DeleteItemRequest.Builder request = deleteRequest(id)
+            .toBuilder()
+            .conditionExpression(versionCondition(expectedVersion))
+            .expressionAttributeNames(Map.of("#id", ID_COLUMN, "#version", VERSION_COLUMN));
+        if (expectedVersion > 0) {
+            request.expressionAttributeValues(Map.of(":expected", AttributeValue
+                .builder()
+                .n(Long.toString(expectedVersion))
+                .build()));
+        }
+        return request.build();
+    }
+
+    /**
+     * Customers stored before versioning have no version attribute and count as version 0.
+     */
+    private static String versionCondition(long expectedVersion) {
+        return expectedVersion > 0
+            ? "attribute_exists(#id) AND #version = :expected"
+            : "attribute_exists(#id) AND attribute_not_exists(#version)";
+    }
+
     protected GetItemRequest getRequest(String id) {
+        return GetItemRequest
+            .builder()
+            .tableName(TABLE_NAME)
+            .key(key(id))
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+            .build();
+    }
+
+    /**
+     * At most {@value CustomerService#MAX_BATCH_GET_SIZE} distinct ids fit into one request.
+     */
+    protected BatchGetItemRequest batchGetRequest(Collection<String> ids) {
+        return BatchGetItemRequest
+            .builder()
+            .requestItems(Map.of(getTableName(), KeysAndAttributes
+                .builder()
+                .keys(ids
+                          .stream()
+                          .map(this::key)
+                          .collect(Collectors.toList()))
+                .build()))
+            .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+            .build();
+    }
+
+    protected Map<String, AttributeValue> key(String id) {
         Map<String, AttributeValue> key = new HashMap<>();
         key.put(ID_COLUMN, AttributeValue
             .builder()
             .s(id)
             .build());
-
-        return GetItemRequest
-            .builder()
-            .tableName(TABLE_NAME)
-            .key(key)
-            .build();
+        return key;
     }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import io.vertx.core.Vertx;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.auth.StsWebIdentityTokenFileCredentialsProvider;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+/**
+ * Produces every AWS client of the service, and the pod's credentials.
+ * <p>
+ * The DynamoDB clients are built from the builders of the {@code quarkus-amazon-dynamodb}
+ * extension, which applies the {@code quarkus.dynamodb.*} region, credentials, endpoint and
+ * timeout settings. The extension replaces the override configuration as a whole and has no
+ * setting for metric publishers, so these producers take precedence over its own, add
+ * {@link AwsSdkMetrics}, {@link AwsSdkTracing} and the {@link CapacityBudget} feedback and set the
+ * HTTP client, the shared {@link SdkHttpTransport} pool or the Vert.x event loops. EventBridge has
+ * no extension in this version and is configured with {@code customer-service.eventbridge.*}.
+ * <p>
+ * All of them are application scoped, so nothing is built before its first use: the clients on
+ * the first call, the credentials when a client first signs a request. In particular the STS
+ * round trip for the web identity is not on the startup path.
+ */
+@ApplicationScoped
+public class AwsClientProducer {
+
+  /**
+   * Bean name of the web identity credentials, as set in
+   * {@code quarkus.dynamodb.aws.credentials.custom-provider.name}.
+   */
+  public static final String WEB_IDENTITY = "web-identity";
+
+  /**
+   * Endpoint of an EventBridge stand-in, which gets unsigned requests.
+   */
+  @ConfigProperty(name = "customer-service.eventbridge.endpoint")
+  Optional<URI> eventBridgeEndpoint;
+
+  /**
+   * A PutEvents batch is up to {@value EventBridgeService#MAX_BATCH_SIZE} entries and is usually
+   * answered in tens of milliseconds.
+   */
+  @ConfigProperty(name = "customer-service.eventbridge.api-call-attempt-timeout",
+      defaultValue = "5s")
+  Duration eventBridgeAttemptTimeout;
+
+  @Inject
+  SdkHttpTransport transport;
+
+  @Inject
+  AwsSdkMetrics sdkMetrics;
+
+  @Inject
+  AwsSdkTracing sdkTracing;
+
+  @Inject
+  CapacityBudget capacityBudget;
+
+  @Inject
+  Vertx vertx;
+
+  @Produces
+  @ApplicationScoped
+  @Alternative
+  @Priority(1)
+  DynamoDbClient dynamoDbClient(DynamoDbClientBuilder builder) {
+    return instrument(builder)
+        .httpClientBuilder(null)
+        .httpClient(transport.httpClient())
+        .build();
+  }
+
+  void close(@Disposes DynamoDbClient client) {
+    client.close();
+  }
+
+  /**
+   * Shares the Vert.x event loops with the HTTP server, see {@link CustomerAsyncService}.
+   */
+  @Produces
+  @ApplicationScoped
+  @Alternative
+  @Priority(1)
+  DynamoDbAsyncClient dynamoDbAsyncClient(DynamoDbAsyncClientBuilder builder) {
+    return instrument(builder)
+        .httpClientBuilder(null)
+        .httpClient(CustomerAsyncService.eventLoopHttpClient(vertx))
+        .asyncConfiguration(CustomerAsyncService::completeOnEventLoop)
+        .build();
+  }
+
+  void close(@Disposes DynamoDbAsyncClient client) {
+    client.close();
+  }
+
+  @Produces
+  @ApplicationScoped
+  EventBridgeClient eventBridgeClient(@Named(WEB_IDENTITY) AwsCredentialsProvider credentials) {
+    return configureEventBridge(EventBridgeClient.builder(), credentials)
+        .httpClient(transport.httpClient())
+        .build();
+  }
+
+  void close(@Disposes EventBridgeClient client) {
+    client.close();
+  }
+
+  @Produces
+  @ApplicationScoped
+  EventBridgeAsyncClient eventBridgeAsyncClient(
+      @Named(WEB_IDENTITY) AwsCredentialsProvider credentials) {
+    return configureEventBridge(EventBridgeAsyncClient.builder(), credentials)
+        .httpClient(CustomerAsyncService.eventLoopHttpClient(vertx))
+        .asyncConfiguration(CustomerAsyncService::completeOnEventLoop)
+        .build();
+  }
+
+  void close(@Disposes EventBridgeAsyncClient client) {
+    client.close();
+  }
+
+  @Produces
+  @ApplicationScoped
+  StsClient stsClient() {
+    return StsClient
+        .builder()
+        .httpClient(transport.httpClient())
+        .credentialsProvider(AnonymousCredentialsProvider.create())
+        .build();
+  }
+
+  void close(@Disposes StsClient client) {
+    client.close();
+  }
+
+  /**
+   * Credentials of the pod's service account, assumed through STS over the shared HTTP client and
+   * refreshed in the background for all clients.
+   */
+  @Produces
+  @ApplicationScoped
+  @Named(WEB_IDENTITY)
+  AwsCredentialsProvider webIdentityCredentials(StsClient stsClient) {
+    return StsWebIdentityTokenFileCredentialsProvider
+        .builder()
+        .stsClient(stsClient)
+        .asyncCredentialUpdateEnabled(true)
+        .build();
+  }
+
+  void close(@Disposes @Named(WEB_IDENTITY) AwsCredentialsProvider credentials) {
+    ((SdkAutoCloseable) credentials).close();
+  }
+
+  private <B extends AwsClientBuilder<B, ?>> B instrument(B builder) {
+    ClientOverrideConfiguration.Builder configuration = builder
+        .overrideConfiguration()
+        .toBuilder();
+    sdkMetrics.register(configuration);
+    sdkTracing.register(configuration);
+    capacityBudget.register(configuration);
+    return builder.overrideConfiguration(configuration.build());
+  }
+
+  /**
+   * Uses the pod's web identity, or the endpoint override with unsigned requests.
+   */
+  private <B extends AwsClientBuilder<B, ?>> B configureEventBridge(
+      B builder, AwsCredentialsProvider credentials) {
+    builder.overrideConfiguration(configuration -> {
+      configuration.apiCallAttemptTimeout(eventBridgeAttemptTimeout);
+      sdkMetrics.register(configuration);
+      sdkTracing.register(configuration);
+    });
+    if (eventBridgeEndpoint.isEmpty()) {
+      return builder.credentialsProvider(credentials);
+    }
+    return builder
+        .endpointOverride(eventBridgeEndpoint.get())
+        .credentialsProvider(AnonymousCredentialsProvider.create());
+  }
+}
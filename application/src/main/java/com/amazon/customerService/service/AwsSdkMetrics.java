@@ -0,0 +1,275 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+
+/**
+ * Records every DynamoDB and EventBridge call made through a client set up with
+ * {@link #register(ClientOverrideConfiguration.Builder)}:
+ * <ul>
+ *   <li>{@code aws.sdk.calls}, call duration including retries, by service, operation and
+ *   outcome</li>
+ *   <li>{@code aws.sdk.attempts}, duration of each HTTP attempt by status</li>
+ *   <li>{@code aws.sdk.retries}, retried attempts, and {@code aws.sdk.throttles}, throttled
+ *   attempts that were retried plus calls that failed throttled</li>
+ *   <li>{@code aws.sdk.http.connections.*} and {@code aws.sdk.http.pending}, the connection pool
+ *   of each HTTP client as of its last call, {@code aws.sdk.http.acquire}, the wait for a
+ *   connection, and {@code aws.sdk.http.saturated}, calls that left the pool exhausted</li>
+ *   <li>{@code dynamodb.consumed.capacity}, capacity units per call by operation and table</li>
+ *   <li>{@code aws.sdk.unprocessed}, entries of batch calls that were not processed and have to
+ *   be resent, failed PutEvents entries included</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class AwsSdkMetrics implements MetricPublisher, ExecutionInterceptor {
+
+  private static final String ATTEMPT     = "ApiCallAttempt";
+  private static final String HTTP_CLIENT = "HttpClient";
+
+  @Inject
+  MeterRegistry registry;
+
+  private final Map<Tags, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+  public void register(ClientOverrideConfiguration.Builder configuration) {
+    configuration
+        .addMetricPublisher(this)
+        .addExecutionInterceptor(this);
+  }
+
+  @Override
+  public void publish(MetricCollection call) {
+    String service = serviceTag(first(call, CoreMetric.SERVICE_ID, "unknown"));
+    Tags tags = Tags.of("service", service,
+                        "operation", first(call, CoreMetric.OPERATION_NAME, "unknown"));
+    Duration duration = first(call, CoreMetric.API_CALL_DURATION, null);
+    if (duration != null) {
+      timer("aws.sdk.calls", tags.and("outcome", first(call, CoreMetric.API_CALL_SUCCESSFUL, false)
+          ? "success"
+          : "failure")).record(duration);
+    }
+    int retries = first(call, CoreMetric.RETRY_COUNT, 0);
+    if (retries > 0) {
+      registry
+          .counter("aws.sdk.retries", tags)
+          .increment(retries);
+    }
+
+    List<MetricCollection> attempts = call
+        .childrenWithName(ATTEMPT)
+        .collect(Collectors.toList());
+    for (int i = 0; i < attempts.size(); i++) {
+      MetricCollection attempt = attempts.get(i);
+      int status = first(attempt, HttpMetric.HTTP_STATUS_CODE, 0);
+      Duration serviceCall = first(attempt, CoreMetric.SERVICE_CALL_DURATION, null);
+      if (serviceCall != null) {
+        timer("aws.sdk.attempts", tags.and("status", Integer.toString(status))).record(serviceCall);
+      }
+      // Throttling answers 400 or 429, other client errors such as a failed condition are not
+      // retried, so a retried attempt with one of these was throttled
+      if (i < attempts.size() - 1 && (status == 400 || status == 429)) {
+        registry
+            .counter("aws.sdk.throttles", tags)
+            .increment();
+      }
+      attempt
+          .childrenWithName(HTTP_CLIENT)
+          .forEach(http -> recordPool(service, http));
+    }
+  }
+
+  /**
+   * The blocking clients share one pool, see {@link SdkHttpTransport}, so its gauges are tagged
+   * with the client name only. Acquisitions are tagged with the service that waited. The
+   * UrlConnection client has no pool and reports nothing.
+   */
+  private void recordPool(String service, MetricCollection http) {
+    String client = first(http, HttpMetric.HTTP_CLIENT_NAME, null);
+    if (client == null) {
+      return;
+    }
+    ConnectionPool pool = pools.computeIfAbsent(Tags.of("client", client), ConnectionPool::new);
+    int leased = first(http, HttpMetric.LEASED_CONCURRENCY, 0);
+    int max = first(http, HttpMetric.MAX_CONCURRENCY, 0);
+    int pending = first(http, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 0);
+    pool.leased.set(leased);
+    pool.available.set(first(http, HttpMetric.AVAILABLE_CONCURRENCY, 0));
+    pool.max.set(max);
+    pool.pending.set(pending);
+
+    Tags tags = Tags.of("service", service, "client", client);
+    Duration acquire = first(http, HttpMetric.CONCURRENCY_ACQUIRE_DURATION, null);
+    if (acquire != null) {
+      timer("aws.sdk.http.acquire", tags).record(acquire);
+    }
+    // The pool is sampled as the response arrives, with this call's connection still leased, so
+    // all connections in use or callers queued means the next call waits
+    if (max > 0 && (leased >= max || pending > 0)) {
+      registry
+          .counter("aws.sdk.http.saturated", tags)
+          .increment();
+    }
+  }
+
+  @Override
+  public void afterExecution(Context.AfterExecution context,
+                             ExecutionAttributes executionAttributes) {
+    SdkResponse response = context.response();
+    String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+
+    CapacityBudget
+        .consumedCapacity(response)
+        .forEach(capacity -> recordCapacity(operation, capacity));
+
+    int unprocessed = 0;
+    if (response instanceof BatchWriteItemResponse) {
+      unprocessed = ((BatchWriteItemResponse) response)
+          .unprocessedItems()
+          .values()
+          .stream()
+          .mapToInt(List::size)
+          .sum();
+    }
+    else if (response instanceof BatchGetItemResponse) {
+      unprocessed = ((BatchGetItemResponse) response)
+          .unprocessedKeys()
+          .values()
+          .stream()
+          .mapToInt(keys -> keys
+              .keys()
+              .size())
+          .sum();
+    }
+    else if (response instanceof PutEventsResponse) {
+      Integer failed = ((PutEventsResponse) response).failedEntryCount();
+      unprocessed = failed == null ? 0 : failed;
+    }
+    if (unprocessed > 0) {
+      registry
+          .counter("aws.sdk.unprocessed", serviceTags(executionAttributes))
+          .increment(unprocessed);
+    }
+  }
+
+  @Override
+  public void onExecutionFailure(Context.FailedExecution context,
+                                 ExecutionAttributes executionAttributes) {
+    if (context.exception() instanceof SdkServiceException
+        && ((SdkServiceException) context.exception()).isThrottlingException()) {
+      registry
+          .counter("aws.sdk.throttles", serviceTags(executionAttributes))
+          .increment();
+    }
+  }
+
+  private void recordCapacity(String operation, ConsumedCapacity capacity) {
+    if (capacity.capacityUnits() == null) {
+      return;
+    }
+    DistributionSummary
+        .builder("dynamodb.consumed.capacity")
+        .description("Capacity units consumed per call")
+        .tags("operation", operation, "table", String.valueOf(capacity.tableName()))
+        .register(registry)
+        .record(capacity.capacityUnits());
+  }
+
+  private static Tags serviceTags(ExecutionAttributes executionAttributes) {
+    return Tags.of("service",
+                   serviceTag(executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME)),
+                   "operation",
+                   executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME));
+  }
+
+  /**
+   * Metrics carry the service id, {@code DynamoDB}, interceptors the client's service name,
+   * {@code DynamoDb}. Both become {@code dynamodb}.
+   */
+  private static String serviceTag(String service) {
+    return service.toLowerCase(Locale.ROOT);
+  }
+
+  private Timer timer(String name, Tags tags) {
+    return Timer
+        .builder(name)
+        .tags(tags)
+        .register(registry);
+  }
+
+  private static <T> T first(MetricCollection metrics, SdkMetric<T> metric, T defaultValue) {
+    List<T> values = metrics.metricValues(metric);
+    return values.isEmpty() ? defaultValue : values.get(0);
+  }
+
+  /**
+   * The clients are closed at shutdown, which would close the publisher. It holds nothing to
+   * release, the registry belongs to Quarkus.
+   */
+  @Override
+  public void close() {
+  }
+
+  private final class ConnectionPool {
+
+    final AtomicInteger leased    = new AtomicInteger();
+    final AtomicInteger available = new AtomicInteger();
+    final AtomicInteger max       = new AtomicInteger();
+    final AtomicInteger pending   = new AtomicInteger();
+
+    ConnectionPool(Tags tags) {
+      registry.gauge("aws.sdk.http.connections.leased", tags, leased);
+      registry.gauge("aws.sdk.http.connections.available", tags, available);
+      registry.gauge("aws.sdk.http.connections.max", tags, max);
+      registry.gauge("aws.sdk.http.pending", tags, pending);
+      registry.gauge("aws.sdk.http.connections.utilization", tags, this,
+                     pool -> pool.max.get() == 0 ? 0 : (double) pool.leased.get() / pool.max.get());
+    }
+  }
+}
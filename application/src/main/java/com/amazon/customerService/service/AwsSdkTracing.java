@@ -0,0 +1,172 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService.service;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * Traces DynamoDB and EventBridge calls made through a client set up with
+ * {@link #register(ClientOverrideConfiguration.Builder)}. Each call gets a client span named
+ * after service and operation, such as {@code DynamoDb.PutItem}, as a child of the current span,
+ * and each HTTP attempt, retries included, an {@code attempt} span below it with the status code
+ * and the AWS request id.
+ */
+@ApplicationScoped
+public class AwsSdkTracing implements ExecutionInterceptor {
+
+  private static final ExecutionAttribute<Span>                  CALL_SPAN    =
+      new ExecutionAttribute<>("CustomerServiceCallSpan");
+  private static final ExecutionAttribute<AtomicReference<Span>> ATTEMPT_SPAN =
+      new ExecutionAttribute<>("CustomerServiceAttemptSpan");
+  private static final ExecutionAttribute<AtomicInteger>         ATTEMPTS     =
+      new ExecutionAttribute<>("CustomerServiceAttempts");
+
+  @Inject
+  Tracer tracer;
+
+  public void register(ClientOverrideConfiguration.Builder configuration) {
+    configuration.addExecutionInterceptor(this);
+  }
+
+  @Override
+  public void beforeExecution(Context.BeforeExecution context,
+                              ExecutionAttributes executionAttributes) {
+    String service = executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+    String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    Span span = tracer
+        .spanBuilder(service + "." + operation)
+        .setSpanKind(SpanKind.CLIENT)
+        .setAttribute("rpc.system", "aws-api")
+        .setAttribute("rpc.service", service)
+        .setAttribute("rpc.method", operation)
+        .startSpan();
+    executionAttributes.putAttribute(CALL_SPAN, span);
+    executionAttributes.putAttribute(ATTEMPT_SPAN, new AtomicReference<>());
+    executionAttributes.putAttribute(ATTEMPTS, new AtomicInteger());
+  }
+
+  @Override
+  public void beforeTransmission(Context.BeforeTransmission context,
+                                 ExecutionAttributes executionAttributes) {
+    Span call = executionAttributes.getAttribute(CALL_SPAN);
+    if (call == null) {
+      return;
+    }
+    // The previous attempt, if any, ended without an answer, for example with a timeout
+    endAttempt(executionAttributes, null);
+
+    int attempt = executionAttributes
+        .getAttribute(ATTEMPTS)
+        .incrementAndGet();
+    Span span = tracer
+        .spanBuilder("attempt")
+        .setParent(io.opentelemetry.context.Context
+                       .current()
+                       .with(call))
+        .setAttribute("aws.sdk.attempt", attempt)
+        .setAttribute("http.request.method", context
+            .httpRequest()
+            .method()
+            .name())
+        .startSpan();
+    executionAttributes
+        .getAttribute(ATTEMPT_SPAN)
+        .set(span);
+  }
+
+  @Override
+  public void afterTransmission(Context.AfterTransmission context,
+                                ExecutionAttributes executionAttributes) {
+    Span span = takeAttempt(executionAttributes);
+    if (span == null) {
+      return;
+    }
+    int status = context
+        .httpResponse()
+        .statusCode();
+    span.setAttribute("http.response.status_code", status);
+    context
+        .httpResponse()
+        .firstMatchingHeader("x-amzn-RequestId")
+        .ifPresent(requestId -> span.setAttribute("aws.request_id", requestId));
+    if (status >= 400) {
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+
+  @Override
+  public void afterExecution(Context.AfterExecution context,
+                             ExecutionAttributes executionAttributes) {
+    Span call = executionAttributes.getAttribute(CALL_SPAN);
+    if (call != null) {
+      call.setAttribute("aws.sdk.attempts", executionAttributes
+          .getAttribute(ATTEMPTS)
+          .get());
+      call.end();
+    }
+  }
+
+  @Override
+  public void onExecutionFailure(Context.FailedExecution context,
+                                 ExecutionAttributes executionAttributes) {
+    Span call = executionAttributes.getAttribute(CALL_SPAN);
+    if (call == null) {
+      return;
+    }
+    endAttempt(executionAttributes, context.exception());
+    call.setAttribute("aws.sdk.attempts", executionAttributes
+        .getAttribute(ATTEMPTS)
+        .get());
+    call.recordException(context.exception());
+    call.setStatus(StatusCode.ERROR);
+    call.end();
+  }
+
+  private static void endAttempt(ExecutionAttributes executionAttributes, Throwable failure) {
+    Span span = takeAttempt(executionAttributes);
+    if (span != null) {
+      if (failure != null) {
+        span.recordException(failure);
+      }
+      span.setStatus(StatusCode.ERROR, "No response");
+      span.end();
+    }
+  }
+
+  private static Span takeAttempt(ExecutionAttributes executionAttributes) {
+    AtomicReference<Span> attempt = executionAttributes.getAttribute(ATTEMPT_SPAN);
+    return attempt == null ? null : attempt.getAndSet(null);
+  }
+}
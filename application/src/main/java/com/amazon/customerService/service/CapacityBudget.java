@@ -0,0 +1,525 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import software.amazon.awssdk.core.ClientType;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+/**
+ * This pod's share of the table's provisioned capacity, as a token bucket of capacity units for
+ * reads and one for writes, so that bursts wait or are shed here instead of being throttled by
+ * DynamoDB and retried inside the SDK while they hold a worker thread.
+ * <ul>
+ *   <li>A bucket refills at {@code customer-service.capacity.read-units} or {@code write-units},
+ *   the table's provisioned units, divided by {@code customer-service.capacity.replicas}, and
+ *   holds up to {@code customer-service.capacity.burst} of them.</li>
+ *   <li>{@link #admit(String)} reserves what an average call of the request's first operation
+ *   consumed, or the whole burst if that is less. If the bucket does not hold the reservation,
+ *   the request waits until it will, or is rejected if that is more than
+ *   {@code customer-service.capacity.max-wait} away. Capping it at the burst keeps requests
+ *   admissible whatever the average, which is only lowered by calls that are made.</li>
+ *   <li>Every DynamoDB call is debited what an average call of its operation consumed before it
+ *   is sent, the first one from the reservations, and is settled with the capacity its response
+ *   reports. A blocking call first waits until the bucket holds its debit, again at most the
+ *   burst, so the pages of a scan and the chunks of a batch are paced to the share however many
+ *   calls one request makes. One that would wait longer than {@code max-wait} fails with
+ *   {@link CapacityExceededException} instead of holding its thread, a stream that reads faster
+ *   than the share therefore ends early. Non-blocking callers pace themselves with
+ *   {@link #backlog(String)}. {@link Permit#release()} returns what is left of a
+ *   reservation.</li>
+ *   <li>The averages are kept per operation and calibrated from the same reports. Scans of the
+ *   whole table, which read up to 1 MB per page, are averaged apart from the pages of
+ *   {@code GET /customers?limit=}.</li>
+ *   <li>Only the table's own capacity is budgeted. Every request asks for its consumption by
+ *   index, and a call is charged what it consumed on the table. The global secondary indexes
+ *   have capacity of their own: queries on them, such as the email and account number lookups
+ *   and recent registrations, are neither debited nor admitted, and their throttling does not
+ *   lower the table's rate.</li>
+ *   <li>Throttling that happens anyway, because other clients use the table or the share is too
+ *   large, halves the refill rate, which recovers linearly over
+ *   {@code customer-service.capacity.recovery}. Throttled calls are retried
+ *   {@code customer-service.capacity.throttle-retries} times only, the caller answers 429.</li>
+ * </ul>
+ * The buckets are published as {@code dynamodb.capacity.balance} and
+ * {@code dynamodb.capacity.rate}, admissions as {@code dynamodb.capacity.admissions} by outcome.
+ */
+@ApplicationScoped
+@JBossLog
+public class CapacityBudget implements ExecutionInterceptor {
+
+  public enum Kind {
+    READ,
+    WRITE
+  }
+
+  private static final Set<String> WRITE_OPERATIONS = Set.of(
+      "PutItem", "UpdateItem", "DeleteItem", "BatchWriteItem", "TransactWriteItems");
+
+  private static final Set<String> READ_OPERATIONS = Set.of(
+      "GetItem", "BatchGetItem", "Query", "Scan", "TransactGetItems");
+
+  /**
+   * The average of scans without a {@code Limit}, kept apart from that of {@code Scan}.
+   */
+  static final String FULL_SCAN = "Scan without Limit";
+
+  /**
+   * What a call was debited before it was sent, to be settled with what it consumed.
+   */
+  private static final ExecutionAttribute<Double> DEBITED =
+      new ExecutionAttribute<>(CapacityBudget.class.getName() + ".debited");
+
+  /**
+   * Weight of the latest call in the average consumption a reservation is based on.
+   */
+  private static final double ESTIMATE_WEIGHT = 0.1;
+
+  /**
+   * Throttling never takes the rate below this fraction of the share.
+   */
+  private static final double MIN_RATE = 0.1;
+
+  private static final RetryCondition DEFAULT_RETRY_CONDITION =
+      RetryCondition.defaultRetryCondition();
+
+  @ConfigProperty(name = "customer-service.capacity.enabled", defaultValue = "true")
+  @Getter
+  boolean enabled;
+
+  @ConfigProperty(name = "customer-service.capacity.read-units", defaultValue = "5")
+  double readUnits;
+
+  @ConfigProperty(name = "customer-service.capacity.write-units", defaultValue = "5")
+  double writeUnits;
+
+  @ConfigProperty(name = "customer-service.capacity.replicas", defaultValue = "1")
+  int replicas;
+
+  @ConfigProperty(name = "customer-service.capacity.burst", defaultValue = "10s")
+  Duration burst;
+
+  @ConfigProperty(name = "customer-service.capacity.max-wait", defaultValue = "250ms")
+  Duration maxWait;
+
+  @ConfigProperty(name = "customer-service.capacity.recovery", defaultValue = "60s")
+  Duration recovery;
+
+  @ConfigProperty(name = "customer-service.capacity.throttle-retries", defaultValue = "1")
+  int throttleRetries;
+
+  @Inject
+  MeterRegistry registry;
+
+  /**
+   * The clock the buckets refill by, replaced in tests.
+   */
+  LongSupplier nanoTime = System::nanoTime;
+
+  private final Map<Kind, Bucket> buckets = new EnumMap<>(Kind.class);
+
+  @PostConstruct
+  void init() {
+    buckets.put(Kind.READ, new Bucket(Kind.READ, readUnits / replicas));
+    buckets.put(Kind.WRITE, new Bucket(Kind.WRITE, writeUnits / replicas));
+  }
+
+  /**
+   * Adds the consumption feedback to a DynamoDB client, and limits its retries of throttled
+   * calls.
+   */
+  public void register(ClientOverrideConfiguration.Builder configuration) {
+    if (!enabled) {
+      return;
+    }
+    configuration
+        .addExecutionInterceptor(this)
+        .retryPolicy(RetryPolicy
+                         .defaultRetryPolicy()
+                         .toBuilder()
+                         .retryCondition(this::shouldRetry)
+                         .build());
+  }
+
+  /**
+   * Reserves the expected capacity of a request's first DynamoDB call, which takes it from the
+   * reservations when it is made.
+   *
+   * @param operation the DynamoDB operation of the first call, such as {@code GetItem}
+   * @return the permit, to be released when the request completes, and how long to wait before
+   *     starting it
+   * @throws CapacityExceededException if the request would have to wait longer than
+   *                                   {@code max-wait}
+   */
+  public Permit admit(String operation) {
+    Kind kind = kind(operation);
+    Bucket bucket = buckets.get(kind);
+    double cost;
+    long waitNanos;
+    synchronized (bucket) {
+      bucket.refill();
+      cost      = Math.min(bucket.estimate(operation), bucket.capacity());
+      waitNanos = bucket.nanosUntil(cost);
+      if (waitNanos > maxWait.toNanos()) {
+        admissions(kind, "rejected");
+        throw new CapacityExceededException(kind, Duration.ofNanos(waitNanos));
+      }
+      bucket.balance -= cost;
+      bucket.reserved += cost;
+    }
+    admissions(kind, waitNanos > 0 ? "queued" : "admitted");
+    return new Permit(bucket, cost, Duration.ofNanos(waitNanos));
+  }
+
+  /**
+   * How long until the bucket holds an average call of the operation again, for a
+   * {@code Retry-After}.
+   */
+  public Duration retryAfter(String operation) {
+    Bucket bucket = buckets.get(kind(operation));
+    synchronized (bucket) {
+      bucket.refill();
+      return Duration.ofNanos(bucket.nanosUntil(Math.min(bucket.estimate(operation),
+                                                         bucket.capacity())));
+    }
+  }
+
+  /**
+   * How long until the operation's bucket is out of debt, for callers that cannot wait in the
+   * SDK call and delay their next call by it instead.
+   */
+  public Duration backlog(String operation) {
+    if (!enabled) {
+      return Duration.ZERO;
+    }
+    Bucket bucket = buckets.get(kind(operation));
+    synchronized (bucket) {
+      bucket.refill();
+      return Duration.ofNanos(bucket.nanosUntil(0));
+    }
+  }
+
+  public static Kind kind(String operation) {
+    return WRITE_OPERATIONS.contains(operation) ? Kind.WRITE : Kind.READ;
+  }
+
+  /**
+   * Debits the call's expected capacity. A call of the blocking client waits until the bucket
+   * holds what its reservation does not cover, at most the burst.
+   *
+   * @throws CapacityExceededException if a blocking call would wait longer than {@code max-wait}
+   */
+  @Override
+  public void beforeExecution(Context.BeforeExecution context,
+                              ExecutionAttributes executionAttributes) {
+    String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    if (!isBudgeted(operation, context.request())) {
+      return;
+    }
+
+    Kind kind = kind(operation);
+    Bucket bucket = buckets.get(kind);
+    boolean blocking = executionAttributes.getAttribute(SdkExecutionAttribute.CLIENT_TYPE)
+        == ClientType.SYNC;
+    double cost;
+    long waitNanos;
+    synchronized (bucket) {
+      bucket.refill();
+      cost = bucket.estimate(estimated(operation, context.request()));
+      double reserved = Math.min(bucket.reserved, cost);
+      waitNanos = blocking && cost > reserved
+          ? bucket.nanosUntil(Math.min(cost - reserved, bucket.capacity()))
+          : 0;
+      if (waitNanos > maxWait.toNanos()) {
+        throw new CapacityExceededException(kind, Duration.ofNanos(waitNanos));
+      }
+      bucket.reserved -= reserved;
+      bucket.balance -= cost - reserved;
+    }
+    executionAttributes.putAttribute(DEBITED, cost);
+
+    if (waitNanos > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      }
+      catch (InterruptedException exc) {
+        Thread
+            .currentThread()
+            .interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void afterExecution(Context.AfterExecution context,
+                             ExecutionAttributes executionAttributes) {
+    Double debited = executionAttributes.getAttribute(DEBITED);
+    if (debited == null) {
+      return;
+    }
+    List<ConsumedCapacity> consumed = consumedCapacity(context.response());
+    if (consumed.isEmpty()) {
+      return;
+    }
+    double units = consumed
+        .stream()
+        .map(ConsumedCapacity::table)
+        .filter(capacity -> capacity != null && capacity.capacityUnits() != null)
+        .mapToDouble(Capacity::capacityUnits)
+        .sum();
+    String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    buckets
+        .get(kind(operation))
+        .settle(estimated(operation, context.request()), debited, units);
+  }
+
+  /**
+   * Refunds a call that DynamoDB throttled, it consumed nothing. Other failures, such as a failed
+   * condition, keep what they were debited.
+   */
+  @Override
+  public void onExecutionFailure(Context.FailedExecution context,
+                                 ExecutionAttributes executionAttributes) {
+    Double debited = executionAttributes.getAttribute(DEBITED);
+    if (debited != null && context.exception() instanceof SdkServiceException
+        && ((SdkServiceException) context.exception()).isThrottlingException()) {
+      buckets
+          .get(kind(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME)))
+          .release(debited);
+    }
+  }
+
+  /**
+   * The consumed capacity a DynamoDB response reports, one entry per table for batch calls.
+   */
+  static List<ConsumedCapacity> consumedCapacity(SdkResponse response) {
+    return response
+        .getValueForField("ConsumedCapacity", Object.class)
+        .map(capacity -> capacity instanceof ConsumedCapacity
+            ? List.of((ConsumedCapacity) capacity)
+            : ((List<?>) capacity)
+                .stream()
+                .map(ConsumedCapacity.class::cast)
+                .collect(Collectors.toList()))
+        .orElse(List.of());
+  }
+
+  boolean shouldRetry(RetryPolicyContext context) {
+    if (!DEFAULT_RETRY_CONDITION.shouldRetry(context)) {
+      return false;
+    }
+    if (!(context.exception() instanceof SdkServiceException)
+        || !((SdkServiceException) context.exception()).isThrottlingException()) {
+      return true;
+    }
+    String operation = context
+        .executionAttributes()
+        .getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    if (isBudgeted(operation, context.originalRequest())) {
+      buckets
+          .get(kind(operation))
+          .throttled();
+    }
+    return context.retriesAttempted() < throttleRetries;
+  }
+
+  /**
+   * Whether the call uses the table's capacity, a data operation that is not a query of an index.
+   */
+  private static boolean isBudgeted(String operation, SdkRequest request) {
+    return (READ_OPERATIONS.contains(operation) || WRITE_OPERATIONS.contains(operation))
+        && request
+        .getValueForField("IndexName", String.class)
+        .isEmpty();
+  }
+
+  /**
+   * The average a call is debited, by its operation except for scans of the whole table.
+   */
+  private static String estimated(String operation, SdkRequest request) {
+    return "Scan".equals(operation) && request
+        .getValueForField("Limit", Integer.class)
+        .isEmpty() ? FULL_SCAN : operation;
+  }
+
+  private void admissions(Kind kind, String outcome) {
+    registry
+        .counter("dynamodb.capacity.admissions", "kind", tag(kind), "outcome", outcome)
+        .increment();
+  }
+
+  private static String tag(Kind kind) {
+    return kind
+        .name()
+        .toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * A reservation of capacity, returned to its bucket by {@link #release()} once.
+   */
+  public static final class Permit {
+
+    private final Bucket        bucket;
+    private final double        cost;
+    @Getter
+    private final Duration      wait;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(Bucket bucket, double cost, Duration wait) {
+      this.bucket = bucket;
+      this.cost   = cost;
+      this.wait   = wait;
+    }
+
+    public void release() {
+      if (released.compareAndSet(false, true)) {
+        bucket.unreserve(cost);
+      }
+    }
+  }
+
+  private final class Bucket {
+
+    final Kind   kind;
+    final double share;
+
+    /**
+     * Average consumption per call, by operation.
+     */
+    final Map<String, Double> estimates = new HashMap<>();
+
+    double rate;
+    double balance;
+    /**
+     * Admitted requests' reservations that their first call has not taken yet, already deducted
+     * from the balance.
+     */
+    double reserved;
+    long   refilled = nanoTime.getAsLong();
+
+    Bucket(Kind kind, double share) {
+      this.kind  = kind;
+      this.share = share;
+      rate       = share;
+      balance    = capacity();
+
+      Tags tags = Tags.of("kind", tag(kind));
+      registry.gauge("dynamodb.capacity.balance", tags, this, bucket -> bucket.refilled().balance);
+      registry.gauge("dynamodb.capacity.rate", tags, this, bucket -> bucket.refilled().rate);
+    }
+
+    double capacity() {
+      return share * burst.toNanos() / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Called holding the bucket's monitor, as everything that reads or changes its state.
+     */
+    void refill() {
+      long now = nanoTime.getAsLong();
+      double seconds = (double) (now - refilled) / TimeUnit.SECONDS.toNanos(1);
+      refilled = now;
+      rate     = Math.min(share, rate + share * seconds * TimeUnit.SECONDS.toNanos(1)
+          / recovery.toNanos());
+      balance  = Math.min(capacity(), balance + rate * seconds);
+    }
+
+    synchronized Bucket refilled() {
+      refill();
+      return this;
+    }
+
+    long nanosUntil(double units) {
+      return units <= balance
+          ? 0
+          : (long) ((units - balance) / rate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    double estimate(String operation) {
+      return estimates.getOrDefault(operation, 1.0);
+    }
+
+    /**
+     * Replaces what a call was debited with what it consumed.
+     */
+    synchronized void settle(String operation, double debited, double units) {
+      refill();
+      balance = Math.min(capacity(), balance + debited - units);
+      double estimate = estimate(operation);
+      estimates.put(operation, estimate + ESTIMATE_WEIGHT * (units - estimate));
+    }
+
+    synchronized void release(double units) {
+      refill();
+      balance = Math.min(capacity(), balance + units);
+    }
+
+    /**
+     * Returns what is left of a request's reservation once it completes.
+     */
+    synchronized void unreserve(double units) {
+      double unused = Math.min(reserved, units);
+      reserved -= unused;
+      release(unused);
+    }
+
+    synchronized void throttled() {
+      refill();
+      double throttledRate = Math.max(share * MIN_RATE, rate / 2);
+      if (throttledRate < rate) {
+        log.warn("DynamoDB throttled " + tag(kind) + "s, budget down to "
+                     + String.format(Locale.ROOT, "%.2f", throttledRate) + " units/s");
+      }
+      rate = throttledRate;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import mutiny.zero.flow.adapters.AdaptersToFlow;
+import software.amazon.awssdk.core.client.config.ClientAsyncConfiguration;
+import software.amazon.awssdk.core.client.config.SdkAdvancedAsyncClientOption;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * Non-blocking variant of {@link CustomerService}.
+ * <p>
+ * The Netty transport runs on the Vert.x event loops instead of its own thread pool, and SDK
+ * futures complete directly on those loops, so a request never leaves the event loop and never
+ * parks a worker thread. Nothing chained onto these results may block.
+ */
+@ApplicationScoped
+public class CustomerAsyncService extends AbstractService {
+
+    @Inject
+    DynamoDbAsyncClient dynamoDB;
+
+    @Inject
+    CustomerCache customerCache;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    CapacityBudget capacityBudget;
+
+    @Inject
+    Vertx vertx;
+
+    static SdkAsyncHttpClient eventLoopHttpClient(Vertx vertx) {
+        return NettyNioAsyncHttpClient
+            .builder()
+            .eventLoopGroup(SdkEventLoopGroup.create(vertx.nettyEventLoopGroup()))
+            .build();
+    }
+
+    static void completeOnEventLoop(ClientAsyncConfiguration.Builder configuration) {
+        configuration.advancedOption(SdkAdvancedAsyncClientOption.FUTURE_COMPLETION_EXECUTOR,
+                                     Runnable::run);
+    }
+
+    public Multi<Customer> stream() {
+        ScanTally tally = new ScanTally();
+        return Multi
+            .createFrom()
+            .publisher(AdaptersToFlow.publisher(dynamoDB.scanPaginator(scanRequest())))
+            .invoke(tally::page)
+            .onItem()
+            .call(this::paced)
+            .onTermination()
+            .invoke(() -> tally.record(registry, 1))
+            .onItem()
+            .transformToIterable(ScanResponse::items)
+            .map(Customer::from);
+    }
+
+    /**
+     * Holds back a scan page until the read budget is out of the debt its call left, so the next
+     * page is requested at the budget's rate. The wait is a timer, the event loop stays free.
+     */
+    private Uni<Void> paced(ScanResponse page) {
+        Duration backlog = capacityBudget.backlog("Scan");
+        if (backlog.isZero()) {
+            return Uni
+                .createFrom()
+                .voidItem();
+        }
+        return Uni
+            .createFrom()
+            .emitter(emitter -> vertx.setTimer(Math.max(1, backlog.toMillis()),
+                                               timer -> emitter.complete(null)));
+    }
+
+    public Uni<CustomerPage> page(int limit, String cursor) {
+        return Uni
+            .createFrom()
+            .completionStage(() -> dynamoDB.scan(scanRequest(limit, PageCursor.decode(cursor))))
+            .map(response -> new CustomerPage(response
+                                                  .items()
+                                                  .stream()
+                                                  .map(Customer::from)
+                                                  .collect(Collectors.toList()),
+                                              PageCursor.encode(response.lastEvaluatedKey())));
+    }
+
+    /**
+     * Creates the customer at version 1, failing with {@link CustomerConflictException} if a
+     * customer with this id exists.
+     */
+    public Uni<Customer> add(Customer customer) {
+        customer.setVersion(1L);
+        return Uni
+            .createFrom()
+            .completionStage(() -> dynamoDB.putItem(putRequest(customer)))
+            .onFailure(ConditionalCheckFailedException.class)
+            .transform(exc -> new CustomerConflictException("Customer " + customer.getId()
+                                                                + " exists", null))
+            .invoke(() -> customerCache.invalidate(customer.getId()))
+            .replaceWith(customer);
+    }
+
+    /**
+     * @return the customer, or {@code null} if there is none with this id
+     */
+    public Uni<Customer> get(String id) {
+        return customerCache.getAsync(id, this::load);
+    }
+
+    /**
+     * Deletes in a single call.
+     *
+     * @return the deleted customer, or {@code null} if there is none with this id
+     */
+    public Uni<Customer> delete(String id) {
+        return Uni
+            .createFrom()
+            .completionStage(() -> dynamoDB.deleteItem(deleteRequest(id)))
+            .map(response -> response.hasAttributes() && !response
+                .attributes()
+                .isEmpty() ? Customer.from(response.attributes()) : null)
+            .invoke(() -> customerCache.invalidate(id));
+    }
+
+    private Uni<Customer> load(String id) {
+        return Uni
+            .createFrom()
+            .completionStage(() -> dynamoDB.getItem(getRequest(id)))
+            .map(response -> response.hasItem() && !response
+                .item()
+                .isEmpty() ? Customer.from(response.item()) : null);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import com.amazon.customerService.model.Customer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Bounded in-process cache of customers by id, including ids that do not exist.
+ * <p>
+ * Eviction is Caffeine's W-TinyLFU, which keeps the hot customers resident under scan-like
+ * traffic. Invalidation on writes is local to the pod, so other replicas may serve a stale entry
+ * for up to the configured TTL. Hit, miss and eviction counts are published as the
+ * {@code cache.*} meters with {@code cache=customers}.
+ */
+@ApplicationScoped
+@JBossLog
+public class CustomerCache {
+
+  @ConfigProperty(name = "customer-service.cache.enabled", defaultValue = "true")
+  boolean enabled;
+
+  @ConfigProperty(name = "customer-service.cache.maximum-size", defaultValue = "10000")
+  long maximumSize;
+
+  @ConfigProperty(name = "customer-service.cache.expire-after-write", defaultValue = "30s")
+  Duration expireAfterWrite;
+
+  /**
+   * Misses are cached for a shorter time, a freshly created customer should not stay invisible.
+   */
+  @ConfigProperty(name = "customer-service.cache.negative-expire-after-write", defaultValue = "5s")
+  Duration negativeExpireAfterWrite;
+
+  @Inject
+  MeterRegistry registry;
+
+  private Cache<String, Optional<Customer>> cache;
+
+  private final ConcurrentHashMap<String, CompletableFuture<Optional<Customer>>> loading =
+      new ConcurrentHashMap<>();
+
+  private final AtomicLong invalidations = new AtomicLong();
+
+  @PostConstruct
+  void init() {
+    if (!enabled) {
+      log.info("Customer cache disabled");
+      return;
+    }
+
+    cache = Caffeine
+        .newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new Expiry<String, Optional<Customer>>() {
+          @Override
+          public long expireAfterCreate(String id, Optional<Customer> customer, long currentTime) {
+            return (customer.isPresent() ? expireAfterWrite : negativeExpireAfterWrite).toNanos();
+          }
+
+          @Override
+          public long expireAfterUpdate(String id, Optional<Customer> customer, long currentTime,
+                                        long currentDuration) {
+            return expireAfterCreate(id, customer, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(String id, Optional<Customer> customer, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(registry, cache, "customers");
+  }
+
+  /**
+   * Returns the cached customer or loads it, with concurrent loads of the same id collapsed into
+   * one. The loader returns {@code null} for a missing customer.
+   * <p>
+   * The load runs on the calling thread outside of any lock. {@code Cache.get} would call the
+   * loader inside the map's compute, holding a monitor for the whole DynamoDB round trip, which
+   * pins the carrier when the caller is a virtual thread. A load that overlaps an
+   * {@link #invalidate(String)} of its id is returned but not cached.
+   */
+  public Customer get(String id, Function<String, Customer> loader) {
+    if (cache == null) {
+      return loader.apply(id);
+    }
+    Optional<Customer> cached = cache.getIfPresent(id);
+    if (cached != null) {
+      return cached.orElse(null);
+    }
+
+    long stamp = loadStamp();
+    CompletableFuture<Optional<Customer>> load = new CompletableFuture<>();
+    CompletableFuture<Optional<Customer>> running = loading.putIfAbsent(id, load);
+    if (running != null) {
+      try {
+        return running
+            .join()
+            .orElse(null);
+      }
+      catch (CompletionException exc) {
+        throw exc.getCause() instanceof RuntimeException
+            ? (RuntimeException) exc.getCause()
+            : exc;
+      }
+    }
+
+    try {
+      Customer customer = loader.apply(id);
+      loaded(id, load, customer, stamp);
+      return customer;
+    }
+    catch (RuntimeException | Error exc) {
+      loading.remove(id, load);
+      load.completeExceptionally(exc);
+      throw exc;
+    }
+  }
+
+  /**
+   * Non-blocking {@link #get(String, Function)}, sharing its in-flight loads: the loader's
+   * {@code Uni} is subscribed once per id however many callers wait for it, and its result is not
+   * cached if an {@link #invalidate(String)} of the id overlapped it. Callers of a load that is
+   * cancelled load again.
+   */
+  public Uni<Customer> getAsync(String id, Function<String, Uni<Customer>> loader) {
+    if (cache == null) {
+      return loader.apply(id);
+    }
+    return Uni
+        .createFrom()
+        .deferred(() -> {
+          Optional<Customer> cached = cache.getIfPresent(id);
+          if (cached != null) {
+            return Uni
+                .createFrom()
+                .item(cached.orElse(null));
+          }
+
+          long stamp = loadStamp();
+          CompletableFuture<Optional<Customer>> load = new CompletableFuture<>();
+          CompletableFuture<Optional<Customer>> running = loading.putIfAbsent(id, load);
+          if (running != null) {
+            // A dependent stage, so that a waiter that cancels does not cancel the shared load
+            return Uni
+                .createFrom()
+                .completionStage(() -> running.thenApply(customer -> customer.orElse(null)))
+                .onFailure(CancellationException.class)
+                .recoverWithUni(() -> loader.apply(id));
+          }
+
+          return loader
+              .apply(id)
+              .onItem()
+              .invoke(customer -> loaded(id, load, customer, stamp))
+              .onFailure()
+              .invoke(exc -> {
+                loading.remove(id, load);
+                load.completeExceptionally(exc);
+              })
+              .onCancellation()
+              .invoke(() -> {
+                loading.remove(id, load);
+                load.cancel(false);
+              });
+        });
+  }
+
+  /**
+   * Caches a load like {@link #putLoaded}, so that an {@link #invalidate(String)} between removing
+   * the load and caching its result still keeps the result out of the cache.
+   */
+  private void loaded(String id, CompletableFuture<Optional<Customer>> load, Customer customer,
+                      long stamp) {
+    if (loading.remove(id, load)) {
+      putLoaded(id, customer, stamp);
+    }
+    load.complete(Optional.ofNullable(customer));
+  }
+
+  /**
+   * @return the cached lookup result, or {@code null} if the id is not cached
+   */
+  public Optional<Customer> getIfPresent(String id) {
+    return cache == null ? null : cache.getIfPresent(id);
+  }
+
+  /**
+   * Marks the start of a read whose results are cached with {@link #putLoaded}.
+   */
+  public long loadStamp() {
+    return invalidations.get();
+  }
+
+  /**
+   * Caches a customer read since {@code stamp} was taken, unless an {@link #invalidate(String)}
+   * of any id overlapped the read, which might have made it stale. Meant for bulk reads, which
+   * do not collapse with concurrent loads of the same ids.
+   */
+  public void putLoaded(String id, Customer customer, long stamp) {
+    if (cache != null && invalidations.get() == stamp) {
+      cache.put(id, Optional.ofNullable(customer));
+      // an invalidation after the check may have run before the put
+      if (invalidations.get() != stamp) {
+        cache.invalidate(id);
+      }
+    }
+  }
+
+  public void invalidate(String id) {
+    if (cache != null) {
+      invalidations.incrementAndGet();
+      loading.remove(id);
+      cache.invalidate(id);
+    }
+  }
+}
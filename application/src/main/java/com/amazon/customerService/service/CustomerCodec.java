@@ -0,0 +1,248 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import static com.amazon.customerService.service.AbstractService.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.service.AbstractService.EMAIL_COLUMN;
+import static com.amazon.customerService.service.AbstractService.ID_COLUMN;
+import static com.amazon.customerService.service.AbstractService.NAME_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_DATE_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_DAY_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_TIME_COLUMN;
+import static com.amazon.customerService.service.AbstractService.VERSION_COLUMN;
+import static java.time.ZoneOffset.UTC;
+import static java.time.format.DateTimeFormatter.ISO_DATE_TIME;
+
+import com.amazon.customerService.model.Customer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Converts customers to and from DynamoDB items.
+ * <p>
+ * The registration date is stored either as a string in the fixed
+ * {@value #DATE_PATTERN} format, or in compact mode as an epoch-millis number. Both are read
+ * regardless of the mode, so a table can be switched over without rewriting it. Dates in the
+ * fixed format are formatted and parsed by hand, which is several times cheaper than going
+ * through {@link DateTimeFormatter}; anything else falls back to ISO parsing.
+ * <p>
+ * Every item also carries the key of {@link AbstractService#REGISTRATION_INDEX}: the UTC day of
+ * registration as its partition and the epoch millis as its sort key. They are derived from the
+ * registration date and not read back.
+ */
+public final class CustomerCodec {
+
+  static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter
+      .ofPattern(DATE_PATTERN)
+      .withZone(UTC);
+
+  private static final int  DATE_LENGTH    = 24;
+  private static final int  DAY_LENGTH     = 10;
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+
+  /**
+   * Largest epoch day the fixed format can hold, 9999-12-31.
+   */
+  private static final long MAX_EPOCH_DAY = 2_932_896L;
+
+  private CustomerCodec() {
+  }
+
+  public static Customer decode(Map<String, AttributeValue> item) {
+    Customer customer = new Customer();
+
+    customer.setId(string(item.get(ID_COLUMN)));
+    customer.setName(string(item.get(NAME_COLUMN)));
+    customer.setEmail(string(item.get(EMAIL_COLUMN)));
+    customer.setAccountNumber(string(item.get(ACCOUNT_NUMBER_COLUMN)));
+
+    AttributeValue regDate = item.get(REGISTRATION_DATE_COLUMN);
+    if (regDate != null) {
+      customer.setRegDate(regDate.n() != null
+                              ? Instant.ofEpochMilli(Long.parseLong(regDate.n()))
+                              : parseDate(regDate.s()));
+    }
+
+    AttributeValue version = item.get(VERSION_COLUMN);
+    customer.setVersion(version == null ? 0 : Long.parseLong(version.n()));
+
+    return customer;
+  }
+
+  /**
+   * @param epochMillisDates store the registration date as an epoch-millis number
+   */
+  public static Map<String, AttributeValue> encode(Customer customer, boolean epochMillisDates) {
+    Map<String, AttributeValue> item = new HashMap<>(12);
+
+    item.put(ID_COLUMN, AttributeValue.fromS(customer.getId()));
+    item.put(NAME_COLUMN, AttributeValue.fromS(customer.getName()));
+    item.put(EMAIL_COLUMN, AttributeValue.fromS(customer.getEmail()));
+    item.put(ACCOUNT_NUMBER_COLUMN, AttributeValue.fromS(customer.getAccountNumber()));
+    String epochMillis = Long.toString(customer
+                                           .getRegDate()
+                                           .toEpochMilli());
+    String date = formatDate(customer.getRegDate());
+    item.put(REGISTRATION_DATE_COLUMN, epochMillisDates
+        ? AttributeValue.fromN(epochMillis)
+        : AttributeValue.fromS(date));
+    item.put(REGISTRATION_DAY_COLUMN, AttributeValue.fromS(date.substring(0, DAY_LENGTH)));
+    item.put(REGISTRATION_TIME_COLUMN, AttributeValue.fromN(epochMillis));
+    if (customer.getVersion() != null) {
+      item.put(VERSION_COLUMN, AttributeValue.fromN(customer
+                                                        .getVersion()
+                                                        .toString()));
+    }
+
+    return item;
+  }
+
+  /**
+   * The registration bucket of {@code instant}, its UTC date as {@code yyyy-MM-dd}.
+   */
+  public static String formatDay(Instant instant) {
+    return formatDate(instant).substring(0, DAY_LENGTH);
+  }
+
+  public static String formatDate(Instant instant) {
+    long epochMillis = instant.toEpochMilli();
+    long epochDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    if (epochDay < 0 || epochDay > MAX_EPOCH_DAY) {
+      return FORMATTER.format(instant);
+    }
+    int millisOfDay = (int) (epochMillis - epochDay * MILLIS_PER_DAY);
+
+    // civil date from days since 1970-01-01, see http://howardhinnant.github.io/date_algorithms.html
+    long days = epochDay + 719_468;
+    long era = days / 146_097;
+    long dayOfEra = days - era * 146_097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+    int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+    int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+    char[] chars = new char[DATE_LENGTH];
+    digits(chars, 0, year, 4);
+    chars[4] = '-';
+    digits(chars, 5, month, 2);
+    chars[7] = '-';
+    digits(chars, 8, day, 2);
+    chars[10] = 'T';
+    digits(chars, 11, millisOfDay / 3_600_000, 2);
+    chars[13] = ':';
+    digits(chars, 14, millisOfDay / 60_000 % 60, 2);
+    chars[16] = ':';
+    digits(chars, 17, millisOfDay / 1000 % 60, 2);
+    chars[19] = '.';
+    digits(chars, 20, millisOfDay % 1000, 3);
+    chars[23] = 'Z';
+    return new String(chars);
+  }
+
+  public static Instant parseDate(String text) {
+    if (text.length() != DATE_LENGTH
+        || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+        || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != '.'
+        || text.charAt(23) != 'Z') {
+      return parseIsoDate(text);
+    }
+
+    int year = digits(text, 0, 4);
+    int month = digits(text, 5, 2);
+    int day = digits(text, 8, 2);
+    int hour = digits(text, 11, 2);
+    int minute = digits(text, 14, 2);
+    int second = digits(text, 17, 2);
+    int millis = digits(text, 20, 3);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+        || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+        || millis < 0) {
+      return parseIsoDate(text);
+    }
+
+    // days since 1970-01-01 from the civil date, the inverse of formatDate
+    int shiftedYear = month <= 2 ? year - 1 : year;
+    int era = Math.floorDiv(shiftedYear, 400);
+    int yearOfEra = shiftedYear - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    long epochDay = era * 146_097L + dayOfEra - 719_468;
+
+    return Instant.ofEpochMilli(epochDay * MILLIS_PER_DAY
+                                    + ((hour * 60 + minute) * 60 + second) * 1000L + millis);
+  }
+
+  /**
+   * Items written by earlier versions of the service are parsed the way they always were.
+   */
+  private static Instant parseIsoDate(String text) {
+    return LocalDateTime
+        .parse(text, ISO_DATE_TIME)
+        .toInstant(UTC);
+  }
+
+  private static String string(AttributeValue value) {
+    return value == null ? null : value.s();
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * @return the number, or {@code -1} if there is a non-digit
+   */
+  private static int digits(String text, int offset, int length) {
+    int value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static void digits(char[] chars, int offset, int value, int length) {
+    for (int i = offset + length - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
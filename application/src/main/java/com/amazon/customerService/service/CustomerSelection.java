@@ -0,0 +1,175 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import static com.amazon.customerService.service.AbstractService.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.service.AbstractService.EMAIL_COLUMN;
+import static com.amazon.customerService.service.AbstractService.ID_COLUMN;
+import static com.amazon.customerService.service.AbstractService.NAME_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_DATE_COLUMN;
+import static com.amazon.customerService.service.AbstractService.VERSION_COLUMN;
+
+import com.amazon.customerService.model.Customer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * The customer fields a list request wants and the predicates the customers have to meet. The
+ * fields become a {@code ProjectionExpression}, so only they are transferred and decoded, and
+ * the predicates a {@code FilterExpression}. DynamoDB applies both after reading the items, so
+ * read capacity is still charged for whole items, and with a limit a page can hold fewer
+ * customers than asked for, or none, and still have a next page.
+ */
+public final class CustomerSelection {
+
+  /**
+   * Customer JSON field by table column, in the order of {@link Customer}.
+   */
+  private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+  static {
+    COLUMNS.put("id", ID_COLUMN);
+    COLUMNS.put("name", NAME_COLUMN);
+    COLUMNS.put("email", EMAIL_COLUMN);
+    COLUMNS.put("accountNumber", ACCOUNT_NUMBER_COLUMN);
+    COLUMNS.put("regDate", REGISTRATION_DATE_COLUMN);
+    COLUMNS.put("version", VERSION_COLUMN);
+  }
+
+  /**
+   * All fields of every customer.
+   */
+  public static final CustomerSelection ALL = new CustomerSelection(List.copyOf(COLUMNS.values()),
+                                                                    List.of(), List.of(),
+                                                                    Map.of());
+
+  private final List<String>                columns;
+  private final String                      projection;
+  private final String                      filter;
+  private final Map<String, String>         names;
+  private final Map<String, AttributeValue> values;
+
+  /**
+   * Every column is referred to as {@code #<column>}, several of them are reserved words.
+   */
+  private CustomerSelection(List<String> columns, List<String> conditions,
+                            List<String> filtered, Map<String, AttributeValue> values) {
+    this.columns    = columns;
+    this.projection = columns
+        .stream()
+        .map(column -> "#" + column)
+        .collect(Collectors.joining(", "));
+    this.filter     = conditions.isEmpty() ? null : String.join(" AND ", conditions);
+    this.names      = new HashMap<>();
+    this.values     = values.isEmpty() ? null : values;
+
+    // DynamoDB rejects names the expressions do not use
+    columns.forEach(column -> names.put("#" + column, column));
+    filtered.forEach(column -> names.put("#" + column, column));
+  }
+
+  /**
+   * @param fields              comma-separated customer fields, all of them if {@code null}
+   * @param name                keeps customers with exactly this name
+   * @param namePrefix          keeps customers whose name starts with this
+   * @param accountNumberPrefix keeps customers whose account number starts with this
+   * @throws IllegalArgumentException for an unknown or empty field
+   */
+  public static CustomerSelection of(String fields, String name, String namePrefix,
+                                     String accountNumberPrefix) {
+    if (fields == null && name == null && namePrefix == null && accountNumberPrefix == null) {
+      return ALL;
+    }
+
+    List<String> columns = ALL.columns;
+    if (fields != null) {
+      columns = new ArrayList<>();
+      for (String field : fields.split(",")) {
+        String column = COLUMNS.get(field.trim());
+        if (column == null) {
+          throw new IllegalArgumentException("Unknown field '" + field.trim() + "', fields are "
+                                                 + String.join(", ", COLUMNS.keySet()));
+        }
+        if (!columns.contains(column)) {
+          columns.add(column);
+        }
+      }
+    }
+
+    List<String> conditions = new ArrayList<>();
+    List<String> filtered = new ArrayList<>();
+    Map<String, AttributeValue> values = new HashMap<>();
+    if (name != null) {
+      conditions.add("#" + NAME_COLUMN + " = :name");
+      filtered.add(NAME_COLUMN);
+      values.put(":name", AttributeValue.fromS(name));
+    }
+    if (namePrefix != null) {
+      conditions.add("begins_with(#" + NAME_COLUMN + ", :namePrefix)");
+      filtered.add(NAME_COLUMN);
+      values.put(":namePrefix", AttributeValue.fromS(namePrefix));
+    }
+    if (accountNumberPrefix != null) {
+      conditions.add("begins_with(#" + ACCOUNT_NUMBER_COLUMN + ", :accountNumberPrefix)");
+      filtered.add(ACCOUNT_NUMBER_COLUMN);
+      values.put(":accountNumberPrefix", AttributeValue.fromS(accountNumberPrefix));
+    }
+    return new CustomerSelection(columns, conditions, filtered, values);
+  }
+
+  public String projection() {
+    return projection;
+  }
+
+  /**
+   * @return the filter expression, {@code null} without predicates
+   */
+  public String filter() {
+    return filter;
+  }
+
+  public Map<String, String> names() {
+    return names;
+  }
+
+  /**
+   * @return the values of the filter expression, {@code null} without predicates
+   */
+  public Map<String, AttributeValue> values() {
+    return values;
+  }
+
+  /**
+   * Decodes a projected item. Fields that were not selected stay {@code null}, the version
+   * included, which otherwise counts as {@code 0} when missing.
+   */
+  public Customer decode(Map<String, AttributeValue> item) {
+    Customer customer = CustomerCodec.decode(item);
+    if (!columns.contains(VERSION_COLUMN)) {
+      customer.setVersion(null);
+    }
+    return customer;
+  }
+}
@@ -20,55 +20,621 @@
 package com.amazon.customerService.service;
 
 import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
-import software.amazon.awssdk.auth.credentials.WebIdentityTokenFileCredentialsProvider;
-import software.amazon.awssdk.core.SdkSystemSetting;
-import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 @ApplicationScoped
 public class CustomerService extends AbstractService {
 
+    /**
+     * Maximum number of items a single BatchWriteItem call accepts.
+     */
+    public static final int MAX_BATCH_WRITE_SIZE = 25;
+
+    /**
+     * Maximum number of keys a single BatchGetItem call accepts.
+     */
+    public static final int MAX_BATCH_GET_SIZE = 100;
+
+    @Inject
     DynamoDbClient dynamoDB;
 
-    public CustomerService() {
+    @Inject
+    CustomerCache customerCache;
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * Number of segments a full-table read is split into. {@code 1} keeps the plain sequential scan.
+     */
+    @ConfigProperty(name = "customer-service.scan.segments", defaultValue = "1")
+    int scanSegments;
+
+    /**
+     * Upper bound of threads running scan segments, shared by all concurrent full-table reads.
+     */
+    @ConfigProperty(name = "customer-service.scan.workers", defaultValue = "8")
+    int scanWorkers;
+
+    /**
+     * BatchWriteItem or BatchGetItem calls per chunk, including resending unprocessed items.
+     */
+    @ConfigProperty(name = "customer-service.batch.max-attempts", defaultValue = "8")
+    int batchMaxAttempts;
+
+    @ConfigProperty(name = "customer-service.batch.retry-backoff", defaultValue = "50ms")
+    Duration batchRetryBackoff;
+
+    /**
+     * Days of the registration index queried at once by {@link #registered}.
+     */
+    @ConfigProperty(name = "customer-service.recent.parallelism", defaultValue = "4")
+    int recentParallelism;
+
+    /**
+     * Longest range {@link #registered} accepts, in days.
+     */
+    @ConfigProperty(name = "customer-service.recent.max-days", defaultValue = "31")
+    int recentMaxDays;
+
+    /**
+     * Upper bound of threads querying days for {@link #registered}, shared by all concurrent
+     * requests. Separate from the scan workers, which block while a slow consumer reads a scan.
+     */
+    @ConfigProperty(name = "customer-service.recent.workers", defaultValue = "8")
+    int recentWorkers;
 
-        System.setProperty(SdkSystemSetting.SYNC_HTTP_SERVICE_IMPL.property(),
-                           "software.amazon.awssdk.http.apache.ApacheSdkHttpService");
+    private ExecutorService scanExecutor;
+    private ExecutorService recentExecutor;
 
-        dynamoDB = DynamoDbClient
-            .builder()
-            .credentialsProvider(WebIdentityTokenFileCredentialsProvider.create())
-            .httpClient(ApacheHttpClient.create())
-            .build();
+    public CustomerService() {
+    }
+
+    public CustomerService(DynamoDbClient dynamoDB, int scanSegments, int scanWorkers) {
+        this.dynamoDB     = dynamoDB;
+        this.scanSegments = scanSegments;
+        this.scanWorkers  = scanWorkers;
+        this.customerCache = new CustomerCache();
+        this.registry      = new SimpleMeterRegistry();
+        this.batchMaxAttempts  = 8;
+        this.batchRetryBackoff = Duration.ofMillis(50);
+        this.recentParallelism = 4;
+        this.recentMaxDays     = 31;
+        this.recentWorkers     = 8;
     }
 
     public List<Customer> findAll() {
+        try (Stream<Customer> customers = stream()) {
+            return customers.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Lazily scans the whole table with the configured number of segments. Pages are only fetched
+     * as the returned stream is consumed; close it to release the segment workers early.
+     */
+    public Stream<Customer> stream() {
+        return stream(scanSegments);
+    }
+
+    public Stream<Customer> stream(int totalSegments) {
+        return stream(totalSegments, CustomerSelection.ALL);
+    }
+
+    /**
+     * Like {@link #stream()}, reading only the selected fields of the selected customers.
+     */
+    public Stream<Customer> stream(CustomerSelection selection) {
+        return stream(scanSegments, selection);
+    }
+
+    public Stream<Customer> stream(int totalSegments, CustomerSelection selection) {
+        ScanTally tally = new ScanTally();
+        if (totalSegments <= 1) {
+            return dynamoDB
+                .scanPaginator(scanRequest(null, null, selection))
+                .stream()
+                .peek(tally::page)
+                .flatMap(page -> page
+                    .items()
+                    .stream())
+                .map(selection::decode)
+                .onClose(() -> tally.record(registry, 1));
+        }
+
+        return SegmentedScan
+            .start(scanExecutor(), totalSegments, segment -> () -> dynamoDB
+                .scanPaginator(scanRequest(null, null, selection)
+                                   .toBuilder()
+                                   .segment(segment)
+                                   .totalSegments(totalSegments)
+                                   .build())
+                .stream()
+                .peek(tally::page)
+                .map(ScanResponse::items)
+                .iterator())
+            .map(selection::decode)
+            .onClose(() -> tally.record(registry, totalSegments));
+    }
+
+    public CustomerPage page(int limit, String cursor) {
+        return page(limit, cursor, CustomerSelection.ALL);
+    }
+
+    /**
+     * A page of up to {@code limit} scanned items, of which only the selected customers are
+     * returned, so it can hold fewer.
+     */
+    public CustomerPage page(int limit, String cursor, CustomerSelection selection) {
+        ScanResponse response = dynamoDB.scan(scanRequest(limit, PageCursor.decode(cursor),
+                                                          selection));
+
+        return new CustomerPage(response
+                                    .items()
+                                    .stream()
+                                    .map(selection::decode)
+                                    .collect(Collectors.toList()),
+                                PageCursor.encode(response.lastEvaluatedKey()));
+    }
+
+    /**
+     * Looks the customers with this email up in {@value #EMAIL_INDEX}, at the cost of the
+     * matches rather than of the table.
+     */
+    public List<Customer> findByEmail(String email, CustomerSelection selection) {
+        return query(queryRequest(EMAIL_INDEX, EMAIL_COLUMN, email, selection), selection);
+    }
+
+    /**
+     * Looks the customers with this account number up in {@value #ACCOUNT_NUMBER_INDEX}.
+     */
+    public List<Customer> findByAccountNumber(String accountNumber, CustomerSelection selection) {
+        return query(queryRequest(ACCOUNT_NUMBER_INDEX, ACCOUNT_NUMBER_COLUMN, accountNumber,
+                                  selection), selection);
+    }
+
+    private List<Customer> query(QueryRequest request, CustomerSelection selection) {
         return dynamoDB
-            .scanPaginator(scanRequest())
+            .queryPaginator(request)
             .items()
             .stream()
-            .map(Customer::from)
+            .map(selection::decode)
             .collect(Collectors.toList());
     }
 
+    /**
+     * Customers registered from {@code since} inclusive to {@code until} exclusive, newest first,
+     * from {@value #REGISTRATION_INDEX}. The range is split into its UTC days, and up to
+     * {@code customer-service.recent.parallelism} days are queried at a time, newest first, each
+     * for as many customers as the page still lacks. Days do not overlap, so their sorted results
+     * merge by concatenation. A page reads at most that parallelism times {@code limit} items,
+     * however large the table or the range.
+     * <p>
+     * The cursor is the index key of the last customer on the page. It only marks the position,
+     * the next page has to be requested with the same range.
+     *
+     * @throws IllegalArgumentException if the range spans more than
+     *     {@code customer-service.recent.max-days} days, or the cursor is malformed or outside it
+     */
+    public CustomerPage registered(Instant since, Instant until, int limit, String cursor) {
+        if (!since.isBefore(until)) {
+            throw new IllegalArgumentException("since must be before until");
+        }
+        List<String> days = registrationDays(since, until);
+        if (days.size() > recentMaxDays) {
+            throw new IllegalArgumentException("The range may span at most " + recentMaxDays
+                                                   + " days");
+        }
+        Map<String, AttributeValue> start = PageCursor.decode(cursor);
+        if (start != null) {
+            AttributeValue day = start.get(REGISTRATION_DAY_COLUMN);
+            int first = day == null ? -1 : days.indexOf(day.s());
+            if (first < 0) {
+                throw new IllegalArgumentException("Cursor outside of the range");
+            }
+            days = days.subList(first, days.size());
+        }
+
+        List<Customer> customers = new ArrayList<>();
+        Map<String, AttributeValue> last = null;
+        boolean more = false;
+        for (int wave = 0; wave < days.size() && !more; wave += recentParallelism) {
+            int wanted = limit - customers.size();
+            List<CompletableFuture<DayPage>> pages = new ArrayList<>();
+            for (int i = wave; i < Math.min(wave + recentParallelism, days.size()); i++) {
+                String day = days.get(i);
+                Map<String, AttributeValue> dayStart = i == 0 ? start : null;
+                pages.add(CompletableFuture.supplyAsync(
+                    () -> queryDay(day, since, until, wanted, dayStart), recentExecutor()));
+            }
+
+            for (int i = 0; i < pages.size() && !more; i++) {
+                DayPage page = join(pages.get(i));
+                int taken = Math.min(page.items.size(), limit - customers.size());
+                for (Map<String, AttributeValue> item : page.items.subList(0, taken)) {
+                    customers.add(Customer.from(item));
+                    last = item;
+                }
+                more = customers.size() == limit
+                    && (taken < page.items.size() || !page.exhausted
+                    || wave + i + 1 < days.size());
+            }
+            if (more) {
+                pages.forEach(page -> page.cancel(false));
+            }
+        }
+
+        return new CustomerPage(customers, more ? PageCursor.encode(registrationKey(last)) : null);
+    }
+
+    /**
+     * Queries one day for up to {@code wanted} customers, following DynamoDB's pages.
+     */
+    private DayPage queryDay(String day, Instant since, Instant until, int wanted,
+                             Map<String, AttributeValue> exclusiveStartKey) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> startKey = exclusiveStartKey;
+        do {
+            QueryResponse response = dynamoDB.query(registeredRequest(day, since, until,
+                                                                      wanted - items.size(),
+                                                                      startKey));
+            items.addAll(response.items());
+            startKey = response.hasLastEvaluatedKey() && !response
+                .lastEvaluatedKey()
+                .isEmpty() ? response.lastEvaluatedKey() : null;
+        }
+        while (startKey != null && items.size() < wanted);
+        return new DayPage(items, startKey == null);
+    }
+
+    /**
+     * UTC days touched by the range, newest first.
+     */
+    private static List<String> registrationDays(Instant since, Instant until) {
+        LocalDate first = LocalDate.ofInstant(since, ZoneOffset.UTC);
+        List<String> days = new ArrayList<>();
+        for (LocalDate day = LocalDate.ofInstant(until.minusMillis(1), ZoneOffset.UTC);
+             !day.isBefore(first); day = day.minusDays(1)) {
+            days.add(CustomerCodec.formatDay(day
+                                                 .atStartOfDay(ZoneOffset.UTC)
+                                                 .toInstant()));
+        }
+        return days;
+    }
+
+    /**
+     * The key to continue a {@value #REGISTRATION_INDEX} query after {@code item}, the table key
+     * and the index key.
+     */
+    private static Map<String, AttributeValue> registrationKey(Map<String, AttributeValue> item) {
+        return Map.of(ID_COLUMN, item.get(ID_COLUMN),
+                      REGISTRATION_DAY_COLUMN, item.get(REGISTRATION_DAY_COLUMN),
+                      REGISTRATION_TIME_COLUMN, item.get(REGISTRATION_TIME_COLUMN));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        }
+    }
+
+    private static final class DayPage {
+
+        final List<Map<String, AttributeValue>> items;
+        final boolean                           exhausted;
+
+        DayPage(List<Map<String, AttributeValue>> items, boolean exhausted) {
+            this.items     = items;
+            this.exhausted = exhausted;
+        }
+    }
+
+    /**
+     * Creates the customer at version 1.
+     *
+     * @throws CustomerConflictException if a customer with this id exists
+     */
     public Customer add(Customer customer) {
-        dynamoDB.putItem(putRequest(customer));
+        customer.setVersion(1L);
+        try {
+            dynamoDB.putItem(putRequest(customer));
+        }
+        catch (ConditionalCheckFailedException exc) {
+            throw new CustomerConflictException("Customer " + customer.getId() + " exists", null);
+        }
+        customerCache.invalidate(customer.getId());
         return customer;
     }
 
+    /**
+     * Updates name, email and account number in one conditional call.
+     *
+     * @return the updated customer, or {@code null} if there is none with this id
+     * @throws CustomerConflictException if the stored customer is not at {@code expectedVersion}
+     */
+    public Customer update(Customer customer, long expectedVersion) {
+        try {
+            return Customer.from(dynamoDB
+                                     .updateItem(updateRequest(customer, expectedVersion))
+                                     .attributes());
+        }
+        catch (ConditionalCheckFailedException exc) {
+            throwIfExists(customer.getId());
+            return null;
+        }
+        finally {
+            customerCache.invalidate(customer.getId());
+        }
+    }
+
+    /**
+     * Writes up to {@value #MAX_BATCH_WRITE_SIZE} customers with BatchWriteItem. Items DynamoDB
+     * leaves unprocessed, typically because of throttling, are resent with jittered exponential
+     * backoff.
+     *
+     * @return ids of the customers that were still unprocessed after the last attempt
+     */
+    public Set<String> addAll(List<Customer> customers) {
+        customers.forEach(customer -> customer.setVersion(1L));
+        BatchWriteItemRequest request = batchPutRequest(customers);
+        Map<String, List<WriteRequest>> unprocessed = dynamoDB
+            .batchWriteItem(request)
+            .unprocessedItems();
+        for (int attempt = 1; !unprocessed.isEmpty() && attempt < batchMaxAttempts; attempt++) {
+            if (!backOff(attempt)) {
+                break;
+            }
+            unprocessed = dynamoDB
+                .batchWriteItem(request
+                                    .toBuilder()
+                                    .requestItems(unprocessed)
+                                    .build())
+                .unprocessedItems();
+        }
+        customers.forEach(customer -> customerCache.invalidate(customer.getId()));
+
+        return unprocessed
+            .values()
+            .stream()
+            .flatMap(List::stream)
+            .map(write -> write
+                .putRequest()
+                .item()
+                .get(ID_COLUMN)
+                .s())
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Looks up to {@value #MAX_BATCH_GET_SIZE} distinct ids, from the cache where possible and
+     * with BatchGetItem otherwise. Unprocessed keys are resent with jittered exponential backoff.
+     * What was read is only cached if no customer was updated or deleted meanwhile.
+     *
+     * @return the customer by id, empty if there is none with this id. Ids that were still
+     *     unprocessed after the last attempt are left out.
+     */
+    public Map<String, Optional<Customer>> getAll(Collection<String> ids) {
+        Map<String, Optional<Customer>> customers = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String id : ids) {
+            Optional<Customer> cached = customerCache.getIfPresent(id);
+            if (cached != null) {
+                customers.put(id, cached);
+            }
+            else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return customers;
+        }
+
+        long stamp = customerCache.loadStamp();
+        BatchGetItemRequest request = batchGetRequest(misses);
+        Map<String, KeysAndAttributes> unprocessed = request.requestItems();
+        for (int attempt = 1; ; attempt++) {
+            BatchGetItemResponse response = dynamoDB.batchGetItem(request
+                                                                      .toBuilder()
+                                                                      .requestItems(unprocessed)
+                                                                      .build());
+            response
+                .responses()
+                .getOrDefault(getTableName(), List.of())
+                .stream()
+                .map(Customer::from)
+                .forEach(customer -> customers.put(customer.getId(), Optional.of(customer)));
+
+            unprocessed = response.unprocessedKeys();
+            if (unprocessed.isEmpty() || attempt >= batchMaxAttempts || !backOff(attempt)) {
+                break;
+            }
+        }
+
+        Set<String> unresolved = unprocessed
+            .values()
+            .stream()
+            .flatMap(keys -> keys
+                .keys()
+                .stream())
+            .map(key -> key
+                .get(ID_COLUMN)
+                .s())
+            .collect(Collectors.toSet());
+        for (String id : misses) {
+            if (!unresolved.contains(id)) {
+                Optional<Customer> customer = customers.computeIfAbsent(id, key -> Optional.empty());
+                customerCache.putLoaded(id, customer.orElse(null), stamp);
+            }
+        }
+        return customers;
+    }
+
+    /**
+     * @return the customer, or {@code null} if there is none with this id
+     */
     public Customer get(String id) {
-        return Customer.from(dynamoDB
-                                 .getItem(getRequest(id))
-                                 .item());
+        return customerCache.get(id, this::load);
     }
 
+    /**
+     * Deletes in a single call.
+     *
+     * @return the deleted customer, or {@code null} if there is none with this id
+     */
     public Customer delete(String id) {
-        Customer customer = get(id);
-        dynamoDB.deleteItem(deleteRequest(id));
+        return delete(deleteRequest(id));
+    }
 
-        return customer;
+    /**
+     * @return the deleted customer, or {@code null} if there is none with this id
+     * @throws CustomerConflictException if the stored customer is not at {@code expectedVersion}
+     */
+    public Customer delete(String id, long expectedVersion) {
+        return delete(deleteRequest(id, expectedVersion));
+    }
+
+    private Customer delete(DeleteItemRequest request) {
+        String id = request
+            .key()
+            .get(ID_COLUMN)
+            .s();
+        try {
+            DeleteItemResponse response = dynamoDB.deleteItem(request);
+            return response.hasAttributes() && !response
+                .attributes()
+                .isEmpty() ? Customer.from(response.attributes()) : null;
+        }
+        catch (ConditionalCheckFailedException exc) {
+            throwIfExists(id);
+            return null;
+        }
+        finally {
+            customerCache.invalidate(id);
+        }
+    }
+
+    /**
+     * A failed version check does not tell whether the customer is missing or has moved on, so
+     * this costs one extra read, on the failure path only.
+     */
+    private void throwIfExists(String id) {
+        Customer current = load(id);
+        if (current != null) {
+            throw new CustomerConflictException("Customer " + id + " is at version "
+                                                    + current.getVersion(),
+                                                current.getVersion());
+        }
+    }
+
+    private Customer load(String id) {
+        GetItemResponse response = dynamoDB.getItem(getRequest(id));
+
+        return response.hasItem() && !response
+            .item()
+            .isEmpty() ? Customer.from(response.item()) : null;
+    }
+
+    /**
+     * @return {@code false} if interrupted while waiting
+     */
+    private boolean backOff(int attempt) {
+        long backoff = batchRetryBackoff.toMillis() << Math.min(attempt - 1, 20);
+        try {
+            Thread.sleep(ThreadLocalRandom
+                             .current()
+                             .nextLong(backoff / 2, backoff + 1));
+            return true;
+        }
+        catch (InterruptedException exc) {
+            Thread
+                .currentThread()
+                .interrupt();
+            return false;
+        }
+    }
+
+    private synchronized ExecutorService scanExecutor() {
+        if (scanExecutor == null) {
+            scanExecutor = executor(scanWorkers, "scan-segment-", "customer.scan");
+        }
+        return scanExecutor;
+    }
+
+    private synchronized ExecutorService recentExecutor() {
+        if (recentExecutor == null) {
+            recentExecutor = executor(recentWorkers, "recent-day-", "customer.recent");
+        }
+        return recentExecutor;
+    }
+
+    private ExecutorService executor(int workers, String threadPrefix, String metricName) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(registry, executor, metricName);
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (scanExecutor != null) {
+            scanExecutor.shutdownNow();
+        }
+        if (recentExecutor != null) {
+            recentExecutor.shutdownNow();
+        }
     }
 }
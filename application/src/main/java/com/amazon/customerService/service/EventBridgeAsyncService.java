@@ -0,0 +1,45 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+
+/**
+ * Non-blocking counterpart of {@link EventBridgeService}, sharing the Vert.x event loops with the
+ * HTTP server. See {@link CustomerAsyncService}.
+ */
+@ApplicationScoped
+public class EventBridgeAsyncService {
+
+  @Inject
+  EventBridgeAsyncClient eventBridgeClient;
+
+  public Uni<Void> writeMessageToEventBridge(String message) {
+    return Uni
+        .createFrom()
+        .completionStage(() -> eventBridgeClient.putEvents(
+            EventBridgeService.putEventsRequest(message)))
+        .invoke(EventBridgeService::checkResult)
+        .replaceWithVoid();
+  }
+}
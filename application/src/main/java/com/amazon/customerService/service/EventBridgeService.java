@@ -19,10 +19,12 @@
 
 package com.amazon.customerService.service;
 
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.List;
+import java.util.stream.Collectors;
 import lombok.extern.jbosslog.JBossLog;
-import software.amazon.awssdk.auth.credentials.WebIdentityTokenFileCredentialsProvider;
-import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
@@ -33,32 +35,58 @@ import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
 @JBossLog
 public class EventBridgeService {
 
-  private final EventBridgeClient eventBridgeClient;
+  /**
+   * Maximum number of entries a single PutEvents call accepts.
+   */
+  public static final int MAX_BATCH_SIZE = 10;
 
-  public EventBridgeService() {
-    eventBridgeClient = EventBridgeClient
+  @Inject
+  EventBridgeClient eventBridgeClient;
+
+  @WithSpan
+  public void writeMessageToEventBridge(String message) {
+    checkResult(eventBridgeClient.putEvents(putEventsRequest(message)));
+  }
+
+  /**
+   * Sends up to {@value #MAX_BATCH_SIZE} messages in one call. Entries can fail individually, the
+   * result holds one entry per message, in order, with an error code for the failed ones.
+   */
+  @WithSpan
+  public List<PutEventsResultEntry> writeMessagesToEventBridge(List<String> messages) {
+    return eventBridgeClient
+        .putEvents(putEventsRequest(messages))
+        .entries();
+  }
+
+  public static PutEventsRequest putEventsRequest(String message) {
+    return PutEventsRequest
         .builder()
-        .credentialsProvider(WebIdentityTokenFileCredentialsProvider.create())
-        .httpClient(ApacheHttpClient.create())
+        .entries(requestEntry(message))
         .build();
   }
 
-  public void writeMessageToEventBridge(String message) {
+  public static PutEventsRequest putEventsRequest(List<String> messages) {
+    return PutEventsRequest
+        .builder()
+        .entries(messages
+                     .stream()
+                     .map(EventBridgeService::requestEntry)
+                     .collect(Collectors.toList()))
+        .build();
+  }
 
-    PutEventsRequestEntry reqEntry = PutEventsRequestEntry
+  static PutEventsRequestEntry requestEntry(String message) {
+    return PutEventsRequestEntry
         .builder()
         .source("com.amazon.customerservice")
         .eventBusName("com.amazon.customerservice")
         .detail(message)
         .detailType("com.amazon.customerservice")
         .build();
+  }
 
-    PutEventsRequest eventsRequest = PutEventsRequest
-        .builder()
-        .entries(reqEntry)
-        .build();
-
-    PutEventsResponse result = eventBridgeClient.putEvents(eventsRequest);
+  static void checkResult(PutEventsResponse result) {
     for (PutEventsResultEntry resultEntry : result.entries()) {
       if (resultEntry.eventId() != null) {
         log.info("Event Id: " + resultEntry.eventId());
@@ -0,0 +1,393 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+/**
+ * Queues customer events and sends them to EventBridge in batches of up to
+ * {@value EventBridgeService#MAX_BATCH_SIZE}, so the request path no longer waits for PutEvents.
+ * <p>
+ * A batch is sent when it is full or when its oldest event has waited for the linger time.
+ * Entries that fail, either individually or because the whole call failed, are retried with
+ * jittered exponential backoff and dropped with an error log after the last attempt. The queue
+ * is bounded; when it is full the caller sends its event itself. On shutdown the queue is drained
+ * before the application stops.
+ * <p>
+ * With {@code customer-service.events.spool.enabled} events are appended to an {@link EventSpool}
+ * on local disk instead of the in-memory queue, and the relay reads its batches from there. A
+ * spooled event is only removed once EventBridge has accepted or finally rejected it, so failed
+ * calls are retried for as long as it takes and unsent events are picked up again after a
+ * restart of the process.
+ * <p>
+ * In the cluster the spool is an {@code emptyDir} volume, which survives container restarts but
+ * is deleted with the pod, on a rollout or scale-in. On shutdown the relay therefore keeps
+ * draining the spool, retrying failed calls, for up to
+ * {@code customer-service.events.shutdown-timeout}, which has to stay below the pod's termination
+ * grace period of 30 seconds. Only events EventBridge did not accept within that time are left in
+ * the spool and lost with the pod.
+ * <p>
+ * Neither loop dies on an unexpected exception: it is logged and the loop backs off and carries
+ * on, a queued batch is dropped and spooled events are read again.
+ */
+@ApplicationScoped
+@JBossLog
+public class EventPublisher {
+
+  @ConfigProperty(name = "customer-service.events.queue-capacity", defaultValue = "10000")
+  int queueCapacity;
+
+  @ConfigProperty(name = "customer-service.events.linger", defaultValue = "20ms")
+  Duration linger;
+
+  @ConfigProperty(name = "customer-service.events.max-attempts", defaultValue = "5")
+  int maxAttempts;
+
+  @ConfigProperty(name = "customer-service.events.retry-backoff", defaultValue = "100ms")
+  Duration retryBackoff;
+
+  @ConfigProperty(name = "customer-service.events.max-backoff", defaultValue = "30s")
+  Duration maxBackoff;
+
+  @ConfigProperty(name = "customer-service.events.shutdown-timeout", defaultValue = "10s")
+  Duration shutdownTimeout;
+
+  @ConfigProperty(name = "customer-service.events.spool.enabled", defaultValue = "false")
+  boolean spoolEnabled;
+
+  @ConfigProperty(name = "customer-service.events.spool.directory", defaultValue = "event-spool")
+  Path spoolDirectory;
+
+  @ConfigProperty(name = "customer-service.events.spool.segment-size", defaultValue = "16M")
+  MemorySize spoolSegmentSize;
+
+  @Inject
+  EventBridgeService eventBridgeService;
+
+  @Inject
+  MeterRegistry registry;
+
+  private BlockingQueue<String> queue;
+  private EventSpool            spool;
+  private Thread                flusher;
+  private volatile boolean      running;
+  private volatile long         drainDeadline;
+
+  private DistributionSummary batchSize;
+  private Counter             published;
+  private Counter             retried;
+  private Counter             dropped;
+  private Counter             callerRuns;
+
+  @PostConstruct
+  void init() {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    registry.gauge("customer.events.queue.depth", queue, BlockingQueue::size);
+    if (spoolEnabled) {
+      try {
+        spool = new EventSpool(spoolDirectory, (int) spoolSegmentSize.asLongValue());
+      }
+      catch (IOException exc) {
+        throw new UncheckedIOException("Cannot open event spool in " + spoolDirectory, exc);
+      }
+      registry.gauge("customer.events.spool.segments", spool, EventSpool::segmentCount);
+    }
+    batchSize  = DistributionSummary
+        .builder("customer.events.batch.size")
+        .description("Events per PutEvents call")
+        .register(registry);
+    published  = registry.counter("customer.events.published");
+    retried    = registry.counter("customer.events.retried");
+    dropped    = registry.counter("customer.events.dropped");
+    callerRuns = registry.counter("customer.events.caller.runs");
+
+    running = true;
+    flusher = new Thread(spool != null ? this::relay : this::run, "event-publisher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Appends the event to the spool, or queues it, or sends it on the calling thread if the queue
+   * is full or shut down.
+   */
+  @WithSpan
+  public void publish(String message) {
+    if (spool != null) {
+      spool.append(message);
+    }
+    else if (!tryPublish(message)) {
+      callerRuns.increment();
+      eventBridgeService.writeMessageToEventBridge(message);
+    }
+  }
+
+  /**
+   * Publishes many events at once. Spooled events are forced to disk together, and events the
+   * queue cannot take are sent by the caller in full batches, with the usual retries.
+   */
+  @WithSpan
+  public void publishAll(List<String> messages) {
+    if (spool != null) {
+      spool.appendAll(messages);
+      return;
+    }
+
+    List<String> rejected = new ArrayList<>();
+    for (String message : messages) {
+      if (!tryPublish(message)) {
+        rejected.add(message);
+      }
+    }
+    callerRuns.increment(rejected.size());
+    try {
+      for (int i = 0; i < rejected.size(); i += EventBridgeService.MAX_BATCH_SIZE) {
+        send(rejected.subList(i, Math.min(i + EventBridgeService.MAX_BATCH_SIZE,
+                                          rejected.size())));
+      }
+    }
+    catch (InterruptedException exc) {
+      Thread
+          .currentThread()
+          .interrupt();
+      log.error("Interrupted, dropping events: " + rejected);
+    }
+  }
+
+  /**
+   * Never blocks, and never spools since appending to the spool waits for the disk.
+   *
+   * @return {@code false} if the event was not queued and the caller has to send it itself
+   */
+  public boolean tryPublish(String message) {
+    return spool == null && running && queue.offer(message);
+  }
+
+  public boolean isSpooling() {
+    return spool != null;
+  }
+
+  void onStop(@Observes ShutdownEvent event) {
+    drainDeadline = System.nanoTime() + shutdownTimeout.toNanos();
+    running       = false;
+    try {
+      flusher.join(shutdownTimeout.toMillis());
+      if (spool != null) {
+        flusher.interrupt();
+        flusher.join();
+      }
+    }
+    catch (InterruptedException exc) {
+      Thread
+          .currentThread()
+          .interrupt();
+    }
+    if (spool != null) {
+      if (!spool.isEmpty()) {
+        log.error("Events not published within " + shutdownTimeout + " stay in the spool, they "
+                      + "are lost if the pod is deleted");
+      }
+      spool.close();
+    }
+    else if (!queue.isEmpty()) {
+      log.error("Dropping " + queue.size() + " events not published before shutdown");
+    }
+  }
+
+  private void run() {
+    List<String> batch = new ArrayList<>(EventBridgeService.MAX_BATCH_SIZE);
+    int failures = 0;
+    try {
+      while (running || !queue.isEmpty()) {
+        try {
+          String first = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+
+          batch.add(first);
+          long deadline = System.nanoTime() + linger.toNanos();
+          while (batch.size() < EventBridgeService.MAX_BATCH_SIZE) {
+            long remaining = deadline - System.nanoTime();
+            String next = remaining > 0 && running
+                ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                : queue.poll();
+            if (next == null) {
+              break;
+            }
+            batch.add(next);
+          }
+
+          send(batch);
+          failures = 0;
+        }
+        catch (RuntimeException exc) {
+          log.error("Dropping " + batch.size() + " events after unexpected failure", exc);
+          dropped.increment(batch.size());
+          Thread.sleep(backoff(++failures));
+        }
+        finally {
+          batch.clear();
+        }
+      }
+    }
+    catch (InterruptedException exc) {
+      Thread
+          .currentThread()
+          .interrupt();
+    }
+  }
+
+  private void relay() {
+    int failures = 0;
+    try {
+      while (running || !spool.isEmpty()) {
+        try {
+          List<String> batch = new ArrayList<>(spool.peek(EventBridgeService.MAX_BATCH_SIZE, 100,
+                                                          TimeUnit.MILLISECONDS));
+          if (batch.isEmpty()) {
+            continue;
+          }
+
+          long deadline = System.nanoTime() + linger.toNanos();
+          while (batch.size() < EventBridgeService.MAX_BATCH_SIZE && running) {
+            long remaining = deadline - System.nanoTime();
+            List<String> next = remaining > 0
+                ? spool.peek(EventBridgeService.MAX_BATCH_SIZE - batch.size(), remaining,
+                             TimeUnit.NANOSECONDS)
+                : List.of();
+            if (next.isEmpty()) {
+              break;
+            }
+            batch.addAll(next);
+          }
+
+          if (!send(batch)) {
+            spool.rewind();
+            return;
+          }
+          spool.commit();
+          failures = 0;
+        }
+        catch (RuntimeException exc) {
+          log.error("Relaying spooled events failed, retrying", exc);
+          spool.rewind();
+          if (!running && System.nanoTime() - drainDeadline >= 0) {
+            return;
+          }
+          Thread.sleep(backoff(++failures));
+        }
+      }
+    }
+    catch (InterruptedException exc) {
+      spool.rewind();
+      Thread
+          .currentThread()
+          .interrupt();
+    }
+  }
+
+  /**
+   * @return {@code false} if a spooled batch could not be sent before shutdown and has to stay
+   *     in the spool
+   */
+  private boolean send(List<String> batch) throws InterruptedException {
+    batchSize.record(batch.size());
+
+    List<String> pending = batch;
+    int rejections = 0;
+    for (int attempt = 1; ; attempt++) {
+      List<String> failed = new ArrayList<>();
+      boolean callFailed = false;
+      try {
+        List<PutEventsResultEntry> results = eventBridgeService.writeMessagesToEventBridge(pending);
+        for (int i = 0; i < pending.size(); i++) {
+          PutEventsResultEntry result = results.get(i);
+          if (result.eventId() == null) {
+            log.warn("Event rejected with error code " + result.errorCode() + ": "
+                         + result.errorMessage());
+            failed.add(pending.get(i));
+          }
+        }
+      }
+      catch (SdkException exc) {
+        log.warn("PutEvents failed: " + exc.getMessage());
+        failed     = pending;
+        callFailed = true;
+      }
+
+      published.increment(pending.size() - failed.size());
+      if (failed.isEmpty()) {
+        return true;
+      }
+      // spooled events are kept until EventBridge is reachable again, only rejected entries
+      // use up their attempts
+      boolean keep = spool != null && callFailed;
+      if (keep && !running && System.nanoTime() - drainDeadline >= 0) {
+        return false;
+      }
+      if (!keep && ++rejections >= maxAttempts) {
+        dropped.increment(failed.size());
+        failed.forEach(message -> log.error("Dropping event after " + maxAttempts
+                                                + " attempts: " + message));
+        return true;
+      }
+
+      retried.increment(failed.size());
+      pending = failed;
+      Thread.sleep(backoff(attempt));
+    }
+  }
+
+  /**
+   * Jittered exponential backoff in millis, capped at {@code max-backoff}.
+   */
+  private long backoff(int attempt) {
+    long backoff = Math.min(retryBackoff.toMillis() << Math.min(attempt - 1, 20),
+                            maxBackoff.toMillis());
+    return ThreadLocalRandom
+        .current()
+        .nextLong(backoff / 2, backoff + 1);
+  }
+}
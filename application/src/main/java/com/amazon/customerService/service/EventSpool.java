@@ -0,0 +1,453 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.jbosslog.JBossLog;
+
+/**
+ * Append-only, memory-mapped write-ahead log of events waiting to be relayed.
+ * <p>
+ * Events are written to fixed-size segment files as {@code [length][crc32][utf-8 payload]}
+ * records, and every append is forced to disk before it returns. A single reader takes records
+ * with {@link #peek(int)} and acknowledges them with {@link #commit()}, which persists the read
+ * position in a checkpoint file and deletes segments that have been read completely. After a
+ * crash, reading resumes at the checkpoint and the write position is recovered by validating
+ * records up to the first torn or empty one. Delivery is therefore at-least-once. Every record
+ * is checked against its CRC again when it is read, and a corrupt one is logged and skipped.
+ * <p>
+ * State is guarded by a {@link ReentrantLock} rather than {@code synchronized}, appends force the
+ * segment to disk while holding it and a virtual thread blocked inside a monitor pins its carrier.
+ */
+@JBossLog
+public class EventSpool implements AutoCloseable {
+
+  static final String SEGMENT_SUFFIX  = ".seg";
+  static final String CHECKPOINT_FILE = "checkpoint";
+
+  private static final int HEADER_SIZE = 8;
+
+  private final Path                    directory;
+  private final int                     segmentSize;
+  private final TreeMap<Long, Segment>  segments = new TreeMap<>();
+  private final ReentrantLock           lock     = new ReentrantLock();
+  private final Condition               appended = lock.newCondition();
+
+  private Segment writeSegment;
+  private Segment readSegment;
+  private int     readPosition;
+
+  private Segment peekSegment;
+  private int     peekPosition;
+
+  public EventSpool(Path directory, int segmentSize) throws IOException {
+    this.directory   = directory;
+    this.segmentSize = segmentSize;
+
+    Files.createDirectories(directory);
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file
+            .getFileName()
+            .toString();
+        if (name.endsWith(SEGMENT_SUFFIX)) {
+          long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+          segments.put(id, new Segment(id, file));
+        }
+      }
+    }
+
+    if (segments.isEmpty()) {
+      writeSegment = openSegment(0);
+    }
+    else {
+      writeSegment = segments
+          .lastEntry()
+          .getValue();
+      writeSegment.map();
+      writeSegment.recoverWritePosition();
+    }
+
+    long[] checkpoint = readCheckpoint();
+    Map.Entry<Long, Segment> start = segments.ceilingEntry(checkpoint[0]);
+    if (start == null) {
+      start = segments.lastEntry();
+    }
+    readSegment  = start.getValue();
+    readPosition = start.getKey() == checkpoint[0] ? (int) checkpoint[1] : 0;
+    readSegment.map();
+    segments
+        .headMap(readSegment.id)
+        .keySet()
+        .forEach(id -> delete(segments.get(id)));
+    segments
+        .headMap(readSegment.id)
+        .clear();
+
+    peekSegment  = readSegment;
+    peekPosition = readPosition;
+
+    log.info("Event spool at " + directory + ", " + segments.size() + " segment(s), resuming at "
+                 + readSegment.id + ":" + readPosition);
+  }
+
+  /**
+   * Appends the event and forces it to disk.
+   */
+  public void append(String message) {
+    appendAll(List.of(message));
+  }
+
+  /**
+   * Appends the events and forces them to disk together, which is much cheaper than one at a
+   * time.
+   *
+   * @throws IllegalArgumentException if an event does not fit into a segment, in which case none
+   *                                  of them is appended
+   */
+  public void appendAll(List<String> messages) {
+    List<byte[]> payloads = new ArrayList<>(messages.size());
+    for (String message : messages) {
+      byte[] payload = message.getBytes(UTF_8);
+      if (HEADER_SIZE + payload.length > segmentSize) {
+        throw new IllegalArgumentException("Event of " + payload.length
+                                               + " bytes exceeds segment");
+      }
+      payloads.add(payload);
+    }
+
+    lock.lock();
+    try {
+      int forceFrom = writeSegment.writePosition;
+      for (byte[] payload : payloads) {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (writeSegment.writePosition + recordSize > segmentSize) {
+          writeSegment.force(forceFrom);
+          writeSegment = openSegment(writeSegment.id + 1);
+          forceFrom    = 0;
+        }
+
+        int position = writeSegment.writePosition;
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        MappedByteBuffer buffer = writeSegment.buffer;
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, payload.length);
+
+        writeSegment.writePosition += recordSize;
+      }
+      writeSegment.force(forceFrom);
+      appended.signalAll();
+    }
+    catch (IOException exc) {
+      throw new UncheckedIOException("Cannot append to event spool", exc);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns up to {@code max} events after the ones already peeked, waiting up to
+   * {@code timeout} for the first one. Events stay in the spool until {@link #commit()}.
+   */
+  public List<String> peek(int max, long timeout, TimeUnit unit) throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    List<String> events = new ArrayList<>(max);
+    lock.lock();
+    try {
+      while (events.size() < max) {
+        String next = next();
+        if (next != null) {
+          events.add(next);
+          continue;
+        }
+        if (!events.isEmpty() || remaining <= 0) {
+          break;
+        }
+        remaining = appended.awaitNanos(remaining);
+      }
+      return events;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  public List<String> peek(int max) {
+    try {
+      return peek(max, 0, TimeUnit.NANOSECONDS);
+    }
+    catch (InterruptedException exc) {
+      Thread
+          .currentThread()
+          .interrupt();
+      return List.of();
+    }
+  }
+
+  /**
+   * Marks everything peeked so far as delivered.
+   */
+  public void commit() {
+    lock.lock();
+    try {
+      if (peekSegment == readSegment && peekPosition == readPosition) {
+        return;
+      }
+      try {
+        writeCheckpoint(peekSegment.id, peekPosition);
+      }
+      catch (IOException exc) {
+        throw new UncheckedIOException("Cannot write event spool checkpoint", exc);
+      }
+      while (readSegment != peekSegment) {
+        Segment consumed = readSegment;
+        readSegment = segments.higherEntry(consumed.id).getValue();
+        segments.remove(consumed.id);
+        delete(consumed);
+      }
+      readPosition = peekPosition;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Forgets everything peeked since the last commit, so it is returned again.
+   */
+  public void rewind() {
+    lock.lock();
+    try {
+      peekSegment  = readSegment;
+      peekPosition = readPosition;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  public boolean isEmpty() {
+    lock.lock();
+    try {
+      return readSegment == writeSegment && readPosition >= writeSegment.writePosition;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  public int segmentCount() {
+    lock.lock();
+    try {
+      return segments.size();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      segments
+          .values()
+          .forEach(Segment::close);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private String next() {
+    while (true) {
+      if (peekSegment == writeSegment && peekPosition >= writeSegment.writePosition) {
+        return null;
+      }
+
+      int length = peekPosition + HEADER_SIZE <= segmentSize
+          ? peekSegment.buffer.getInt(peekPosition)
+          : 0;
+      if (length <= 0 || peekPosition + HEADER_SIZE + length > segmentSize) {
+        // rest of a sealed segment is unused, continue with the next one
+        peekSegment = segments
+            .higherEntry(peekSegment.id)
+            .getValue();
+        try {
+          peekSegment.map();
+        }
+        catch (IOException exc) {
+          throw new UncheckedIOException(exc);
+        }
+        peekPosition = 0;
+        continue;
+      }
+
+      byte[] payload = new byte[length];
+      peekSegment.buffer.get(peekPosition + HEADER_SIZE, payload);
+      int position = peekPosition;
+      peekPosition += HEADER_SIZE + length;
+      if (!hasValidCrc(payload, peekSegment.buffer.getInt(position + 4))) {
+        // recovery only validates the last segment, a sealed one may have been damaged since
+        log.error("Skipping corrupt record at " + peekSegment.id + ":" + position);
+        continue;
+      }
+      return new String(payload, UTF_8);
+    }
+  }
+
+  private static boolean hasValidCrc(byte[] payload, int expected) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return (int) crc.getValue() == expected;
+  }
+
+  private Segment openSegment(long id) throws IOException {
+    Segment segment = new Segment(id, directory.resolve(String.format("%020d%s", id,
+                                                                      SEGMENT_SUFFIX)));
+    segment.map();
+    segments.put(id, segment);
+    return segment;
+  }
+
+  private long[] readCheckpoint() throws IOException {
+    Path file = directory.resolve(CHECKPOINT_FILE);
+    if (!Files.exists(file)) {
+      return new long[]{segments.firstKey(), 0};
+    }
+    String[] parts = Files
+        .readString(file)
+        .trim()
+        .split(" ");
+    return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+  }
+
+  private void writeCheckpoint(long segmentId, int position) throws IOException {
+    Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      channel.write(ByteBuffer.wrap((segmentId + " " + position).getBytes(UTF_8)));
+      channel.force(true);
+    }
+    Files.move(temp, directory.resolve(CHECKPOINT_FILE), ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  private void delete(Segment segment) {
+    segment.close();
+    try {
+      Files.deleteIfExists(segment.path);
+    }
+    catch (IOException exc) {
+      log.warn("Cannot delete spool segment " + segment.path, exc);
+    }
+  }
+
+  private class Segment {
+
+    final long id;
+    final Path path;
+
+    FileChannel      channel;
+    MappedByteBuffer buffer;
+    int              writePosition;
+
+    Segment(long id, Path path) {
+      this.id   = id;
+      this.path = path;
+    }
+
+    void map() throws IOException {
+      if (buffer == null) {
+        channel = FileChannel.open(path, CREATE, READ, WRITE);
+        buffer  = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      }
+    }
+
+    void force(int from) {
+      if (writePosition > from) {
+        buffer.force(from, writePosition - from);
+      }
+    }
+
+    /**
+     * Walks the records and stops at the first empty, truncated or corrupt one.
+     */
+    void recoverWritePosition() {
+      int position = 0;
+      while (position + HEADER_SIZE <= segmentSize) {
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > segmentSize) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_SIZE, payload);
+        if (!hasValidCrc(payload, buffer.getInt(position + 4))) {
+          // records after a torn one may be intact, and would come back after the next
+          // restart once new ones are written over the torn one
+          log.warn("Discarding torn record at " + id + ":" + position + " and the rest of the "
+                       + "segment");
+          buffer.put(position, new byte[segmentSize - position]);
+          buffer.force();
+          break;
+        }
+        position += HEADER_SIZE + length;
+      }
+      writePosition = position;
+    }
+
+    void close() {
+      buffer = null;
+      try {
+        if (channel != null) {
+          channel.close();
+        }
+      }
+      catch (IOException exc) {
+        log.warn("Cannot close spool segment " + path, exc);
+      }
+    }
+  }
+}
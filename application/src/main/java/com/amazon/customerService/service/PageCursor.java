@@ -0,0 +1,112 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Encodes a DynamoDB {@code LastEvaluatedKey} as an opaque, URL-safe cursor and back. Only the
+ * scalar key types (S and N) are supported, which covers the table key and every index key.
+ */
+public final class PageCursor {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final TypeReference<Map<String, Map<String, String>>> KEY_TYPE =
+      new TypeReference<>() {
+      };
+
+  private PageCursor() {
+  }
+
+  public static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+    if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+      return null;
+    }
+
+    Map<String, Map<String, String>> plain = new HashMap<>();
+    lastEvaluatedKey.forEach((name, value) -> {
+      if (value.s() != null) {
+        plain.put(name, Map.of("S", value.s()));
+      }
+      else if (value.n() != null) {
+        plain.put(name, Map.of("N", value.n()));
+      }
+      else {
+        throw new IllegalStateException("Unsupported key attribute type for " + name);
+      }
+    });
+
+    try {
+      return Base64
+          .getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(MAPPER.writeValueAsBytes(plain));
+    }
+    catch (IOException exc) {
+      throw new IllegalStateException("Cannot encode cursor", exc);
+    }
+  }
+
+  public static Map<String, AttributeValue> decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+
+    Map<String, Map<String, String>> plain;
+    try {
+      plain = MAPPER.readValue(Base64
+                                   .getUrlDecoder()
+                                   .decode(cursor), KEY_TYPE);
+    }
+    catch (IOException | IllegalArgumentException exc) {
+      throw new IllegalArgumentException("Malformed cursor", exc);
+    }
+    if (plain == null || plain.isEmpty()) {
+      throw new IllegalArgumentException("Malformed cursor");
+    }
+
+    Map<String, AttributeValue> key = new HashMap<>();
+    plain.forEach((name, typed) -> {
+      if (typed.containsKey("S")) {
+        key.put(name, AttributeValue
+            .builder()
+            .s(typed.get("S"))
+            .build());
+      }
+      else if (typed.containsKey("N")) {
+        key.put(name, AttributeValue
+            .builder()
+            .n(typed.get("N"))
+            .build());
+      }
+      else {
+        throw new IllegalArgumentException("Malformed cursor");
+      }
+    });
+    return key;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * Counts the pages and items of one full-table read, from any number of segment threads, and
+ * records them as {@code customer.scan.pages} and {@code customer.scan.items} when it ends.
+ */
+final class ScanTally {
+
+  private final AtomicInteger pages = new AtomicInteger();
+  private final AtomicLong    items = new AtomicLong();
+
+  void page(ScanResponse response) {
+    pages.incrementAndGet();
+    items.addAndGet(response.count());
+  }
+
+  void record(MeterRegistry registry, int segments) {
+    String segmentsTag = Integer.toString(segments);
+    DistributionSummary
+        .builder("customer.scan.pages")
+        .description("Scan pages per full-table read")
+        .tag("segments", segmentsTag)
+        .register(registry)
+        .record(pages.get());
+    DistributionSummary
+        .builder("customer.scan.items")
+        .description("Items per full-table read")
+        .tag("segments", segmentsTag)
+        .register(registry)
+        .record(items.get());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.Optional;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+/**
+ * The one blocking HTTP client shared by the DynamoDB, EventBridge and STS clients, so all of them
+ * draw from a single, tuned connection pool.
+ * <p>
+ * {@code customer-service.http.client} selects the implementation. {@code apache}, the default,
+ * pools connections and takes every setting below. {@code url-connection} starts faster and is
+ * smaller, but leaves pooling to the JDK's keep-alive cache and only takes the connect and socket
+ * timeouts. The AWS CRT client has no blocking variant in this SDK version. Every client is built
+ * with its HTTP client set explicitly, so having both implementations on the classpath needs no
+ * {@code SYNC_HTTP_SERVICE_IMPL} system property.
+ * <p>
+ * The pool is shared by all services, its gauges in {@link AwsSdkMetrics} therefore only carry
+ * the client name.
+ */
+@ApplicationScoped
+@JBossLog
+public class SdkHttpTransport {
+
+  public enum Type {
+    APACHE, URL_CONNECTION
+  }
+
+  @ConfigProperty(name = "customer-service.http.client", defaultValue = "apache")
+  Type type;
+
+  /**
+   * Connections across all services. A call beyond this waits up to
+   * {@code connection-acquisition-timeout} for one to be returned.
+   */
+  @ConfigProperty(name = "customer-service.http.max-connections", defaultValue = "50")
+  int maxConnections;
+
+  @ConfigProperty(name = "customer-service.http.connection-timeout", defaultValue = "2s")
+  Duration connectionTimeout;
+
+  @ConfigProperty(name = "customer-service.http.socket-timeout", defaultValue = "30s")
+  Duration socketTimeout;
+
+  @ConfigProperty(name = "customer-service.http.connection-acquisition-timeout",
+      defaultValue = "2s")
+  Duration connectionAcquisitionTimeout;
+
+  /**
+   * Closes connections this old once they are returned to the pool, so new DynamoDB endpoints
+   * from DNS are picked up. Unlimited if not set.
+   */
+  @ConfigProperty(name = "customer-service.http.connection-time-to-live")
+  Optional<Duration> connectionTimeToLive;
+
+  @ConfigProperty(name = "customer-service.http.connection-max-idle-time", defaultValue = "60s")
+  Duration connectionMaxIdleTime;
+
+  /**
+   * Closes idle connections in the background instead of when they are next leased.
+   */
+  @ConfigProperty(name = "customer-service.http.use-idle-connection-reaper",
+      defaultValue = "true")
+  boolean useIdleConnectionReaper;
+
+  @ConfigProperty(name = "customer-service.http.tcp-keep-alive", defaultValue = "true")
+  boolean tcpKeepAlive;
+
+  private SdkHttpClient httpClient;
+
+  @PostConstruct
+  void init() {
+    if (type == Type.URL_CONNECTION) {
+      httpClient = UrlConnectionHttpClient
+          .builder()
+          .connectionTimeout(connectionTimeout)
+          .socketTimeout(socketTimeout)
+          .build();
+      log.info("SDK HTTP client " + httpClient.clientName() + ", pooled by the JDK");
+      return;
+    }
+
+    ApacheHttpClient.Builder builder = ApacheHttpClient
+        .builder()
+        .maxConnections(maxConnections)
+        .connectionTimeout(connectionTimeout)
+        .socketTimeout(socketTimeout)
+        .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+        .connectionMaxIdleTime(connectionMaxIdleTime)
+        .useIdleConnectionReaper(useIdleConnectionReaper)
+        .tcpKeepAlive(tcpKeepAlive);
+    connectionTimeToLive.ifPresent(builder::connectionTimeToLive);
+    httpClient = builder.build();
+    log.info("SDK HTTP client " + httpClient.clientName() + ", " + maxConnections
+                 + " connections");
+  }
+
+  public SdkHttpClient httpClient() {
+    return httpClient;
+  }
+
+  /**
+   * Runs after the services using it, they are its dependents. The SDK clients do not close an
+   * HTTP client they were given.
+   */
+  @PreDestroy
+  void close() {
+    httpClient.close();
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.extern.jbosslog.JBossLog;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Runs one scan per segment on a shared worker pool and merges their pages into a single stream.
+ * <p>
+ * Pages are handed over through a small bounded queue, so a slow consumer stalls the segment
+ * workers instead of letting pages pile up in memory. Closing the stream cancels the workers.
+ */
+@JBossLog
+final class SegmentedScan implements Iterator<List<Map<String, AttributeValue>>> {
+
+  private static final Object SEGMENT_DONE = new Object();
+
+  private final BlockingQueue<Object> pages;
+  private final List<Future<?>>       workers;
+  private final AtomicBoolean         cancelled = new AtomicBoolean();
+
+  private int    remainingSegments;
+  private Object next;
+
+  private SegmentedScan(int totalSegments) {
+    this.pages             = new ArrayBlockingQueue<>(2 * totalSegments);
+    this.workers           = new ArrayList<>(totalSegments);
+    this.remainingSegments = totalSegments;
+  }
+
+  /**
+   * @param segmentPages returns the lazily paginated items of the given segment
+   */
+  static Stream<Map<String, AttributeValue>> start(
+      ExecutorService executor, int totalSegments,
+      IntFunction<Iterable<List<Map<String, AttributeValue>>>> segmentPages) {
+
+    SegmentedScan scan = new SegmentedScan(totalSegments);
+    for (int segment = 0; segment < totalSegments; segment++) {
+      final int current = segment;
+      scan.workers.add(executor.submit(() -> scan.drain(segmentPages.apply(current))));
+    }
+
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(scan, Spliterator.NONNULL), false)
+        .flatMap(List::stream)
+        .onClose(scan::cancel);
+  }
+
+  private void drain(Iterable<List<Map<String, AttributeValue>>> segmentPages) {
+    try {
+      try {
+        for (List<Map<String, AttributeValue>> page : segmentPages) {
+          if (cancelled.get()) {
+            return;
+          }
+          if (!page.isEmpty()) {
+            pages.put(page);
+          }
+        }
+        pages.put(SEGMENT_DONE);
+      }
+      catch (Throwable exc) {
+        // Anything the segment throws has to reach the consumer, which otherwise waits for its
+        // SEGMENT_DONE forever
+        if (!cancelled.get()) {
+          log.error("Scan segment failed", exc);
+          pages.put(exc);
+        }
+      }
+    }
+    catch (InterruptedException exc) {
+      Thread
+          .currentThread()
+          .interrupt();
+    }
+  }
+
+  private void cancel() {
+    if (cancelled.compareAndSet(false, true)) {
+      workers.forEach(worker -> worker.cancel(true));
+      pages.clear();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && remainingSegments > 0) {
+      Object taken;
+      try {
+        taken = pages.take();
+      }
+      catch (InterruptedException exc) {
+        cancel();
+        Thread
+            .currentThread()
+            .interrupt();
+        throw new IllegalStateException("Interrupted while waiting for scan pages", exc);
+      }
+
+      if (taken == SEGMENT_DONE) {
+        remainingSegments--;
+      }
+      else if (taken instanceof Throwable) {
+        cancel();
+        if (taken instanceof Error) {
+          throw (Error) taken;
+        }
+        if (taken instanceof RuntimeException) {
+          throw (RuntimeException) taken;
+        }
+        throw new IllegalStateException("Scan segment failed", (Throwable) taken);
+      }
+      else {
+        next = taken;
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Map<String, AttributeValue>> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    List<Map<String, AttributeValue>> page = (List<Map<String, AttributeValue>>) next;
+    next = null;
+    return page;
+  }
+}
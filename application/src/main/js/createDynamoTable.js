@@ -3,6 +3,33 @@ var params = {
     KeySchema: [{ AttributeName: 'Id', KeyType: 'HASH' }],
     AttributeDefinitions: [
         {  AttributeName: 'Id', AttributeType: 'S', },
+        {  AttributeName: 'Email', AttributeType: 'S', },
+        {  AttributeName: 'AccountNumber', AttributeType: 'S', },
+        {  AttributeName: 'RegistrationDay', AttributeType: 'S', },
+        {  AttributeName: 'RegistrationTime', AttributeType: 'N', },
+    ],
+    GlobalSecondaryIndexes: [
+        {
+            IndexName: 'EmailIndex',
+            KeySchema: [{ AttributeName: 'Email', KeyType: 'HASH' }],
+            Projection: { ProjectionType: 'ALL' },
+            ProvisionedThroughput: { ReadCapacityUnits: 1, WriteCapacityUnits: 1, }
+        },
+        {
+            IndexName: 'AccountNumberIndex',
+            KeySchema: [{ AttributeName: 'AccountNumber', KeyType: 'HASH' }],
+            Projection: { ProjectionType: 'ALL' },
+            ProvisionedThroughput: { ReadCapacityUnits: 1, WriteCapacityUnits: 1, }
+        },
+        {
+            IndexName: 'RegistrationIndex',
+            KeySchema: [
+                { AttributeName: 'RegistrationDay', KeyType: 'HASH' },
+                { AttributeName: 'RegistrationTime', KeyType: 'RANGE' },
+            ],
+            Projection: { ProjectionType: 'ALL' },
+            ProvisionedThroughput: { ReadCapacityUnits: 1, WriteCapacityUnits: 1, }
+        },
     ],
     ProvisionedThroughput: { ReadCapacityUnits: 1, WriteCapacityUnits: 1, }
 };
@@ -0,0 +1,289 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ClientType;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+class CapacityBudgetTest {
+
+  /**
+   * 5 read units shared by 3 replicas with a 10s burst, as shipped.
+   */
+  private static final double SHARE    = 5.0 / 3;
+  private static final double CAPACITY = SHARE * 10;
+
+  /**
+   * What a 1 MB scan page reads, eventually consistent.
+   */
+  private static final double FULL_PAGE_UNITS = 128;
+
+  private static final double DELTA = 1e-6;
+
+  private final AtomicLong          now      = new AtomicLong();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final CapacityBudget      budget   = new CapacityBudget();
+
+  @BeforeEach
+  void setUp() {
+    budget.enabled         = true;
+    budget.readUnits       = 5;
+    budget.writeUnits      = 5;
+    budget.replicas        = 3;
+    budget.burst           = Duration.ofSeconds(10);
+    budget.maxWait         = Duration.ofMillis(250);
+    budget.recovery        = Duration.ofSeconds(60);
+    budget.throttleRetries = 1;
+    budget.registry        = registry;
+    budget.nanoTime        = now::get;
+    budget.init();
+  }
+
+  @Test
+  void refillsAtTheShareUpToTheBurst() {
+    assertEquals(CAPACITY, balance(), DELTA);
+
+    CapacityBudget.Permit permit = budget.admit("GetItem");
+    assertTrue(permit
+                   .getWait()
+                   .isZero());
+    assertEquals(CAPACITY - 1, balance(), DELTA);
+
+    advance(Duration.ofMillis(300));
+    assertEquals(CAPACITY - 1 + SHARE * 0.3, balance(), DELTA);
+    advance(Duration.ofHours(1));
+    assertEquals(CAPACITY, balance(), DELTA);
+
+    // the reservation was not taken by a call, and the bucket is full
+    permit.release();
+    assertEquals(CAPACITY, balance(), DELTA);
+  }
+
+  @Test
+  void firstCallTakesTheReservationAndReleaseReturnsNothing() {
+    CapacityBudget.Permit permit = budget.admit("Scan");
+    call(scan(50), scanned(1), ClientType.SYNC);
+    permit.release();
+
+    assertEquals(CAPACITY - 1, balance(), DELTA);
+  }
+
+  @Test
+  void settlesCallsWithWhatTheTableConsumed() {
+    call(scan(50), ScanResponse
+        .builder()
+        .consumedCapacity(ConsumedCapacity
+                              .builder()
+                              .tableName(AbstractService.TABLE_NAME)
+                              .capacityUnits(7.0)
+                              .table(Capacity
+                                         .builder()
+                                         .capacityUnits(4.0)
+                                         .build())
+                              .build())
+        .build(), ClientType.ASYNC);
+
+    assertEquals(CAPACITY - 4, balance(), DELTA);
+  }
+
+  @Test
+  void leavesIndexQueriesOut() {
+    QueryRequest query = QueryRequest
+        .builder()
+        .tableName(AbstractService.TABLE_NAME)
+        .indexName(AbstractService.EMAIL_INDEX)
+        .build();
+    call(query, QueryResponse
+        .builder()
+        .consumedCapacity(ConsumedCapacity
+                              .builder()
+                              .capacityUnits(3.0)
+                              .build())
+        .build(), ClientType.SYNC);
+
+    assertEquals(CAPACITY, balance(), DELTA);
+    assertTrue(budget.shouldRetry(throttled(query, 0)));
+    assertEquals(SHARE, rate(), DELTA);
+  }
+
+  @Test
+  void throttlingHalvesTheRateWhichRecoversOverTime() {
+    assertTrue(budget.shouldRetry(throttled(scan(50), 0)));
+    assertEquals(SHARE / 2, rate(), DELTA);
+
+    // retried throttle-retries times only
+    assertFalse(budget.shouldRetry(throttled(scan(50), 1)));
+    assertEquals(SHARE / 4, rate(), DELTA);
+
+    advance(Duration.ofSeconds(30));
+    assertEquals(SHARE / 4 + SHARE / 2, rate(), DELTA);
+    advance(Duration.ofSeconds(60));
+    assertEquals(SHARE, rate(), DELTA);
+  }
+
+  @Test
+  void admitsScansAgainOnceTheBucketIsFullWhateverTheirAverage() {
+    for (int page = 0; page < 50; page++) {
+      call(scan(null), scanned(FULL_PAGE_UNITS), ClientType.ASYNC);
+      call(scan(1000), scanned(FULL_PAGE_UNITS), ClientType.ASYNC);
+    }
+    assertThrows(CapacityExceededException.class, () -> budget.admit("Scan"));
+    assertTrue(budget
+                   .retryAfter("Scan")
+                   .compareTo(Duration.ofHours(1)) > 0);
+
+    // the 100 pages are repaid after 7680s, and a page still costs more than the bucket holds
+    advance(Duration.ofHours(3));
+    assertEquals(CAPACITY, balance(), DELTA);
+    assertTrue(budget
+                   .retryAfter("Scan")
+                   .isZero());
+    assertTrue(budget
+                   .admit("Scan")
+                   .getWait()
+                   .isZero());
+  }
+
+  @Test
+  void failsBlockingCallThatWouldWaitPastMaxWait() {
+    call(scan(null), scanned(FULL_PAGE_UNITS), ClientType.ASYNC);
+    double balance = balance();
+
+    assertThrows(CapacityExceededException.class, () -> budget.beforeExecution(
+        context(scan(null), null), attributes("Scan", ClientType.SYNC)));
+    assertEquals(balance, balance(), DELTA);
+
+    // a non-blocking call is debited without waiting, its caller paces itself
+    call(scan(null), scanned(FULL_PAGE_UNITS), ClientType.ASYNC);
+    assertTrue(budget
+                   .backlog("Scan")
+                   .compareTo(Duration.ofSeconds(1)) > 0);
+  }
+
+  private void call(SdkRequest request, SdkResponse response, ClientType clientType) {
+    ExecutionAttributes attributes = attributes(request
+                                                    .getClass()
+                                                    .getSimpleName()
+                                                    .replace("Request", ""), clientType);
+    budget.beforeExecution(context(request, null), attributes);
+    budget.afterExecution(context(request, response), attributes);
+  }
+
+  private static ScanRequest scan(Integer limit) {
+    return ScanRequest
+        .builder()
+        .tableName(AbstractService.TABLE_NAME)
+        .limit(limit)
+        .build();
+  }
+
+  private static ScanResponse scanned(double units) {
+    return ScanResponse
+        .builder()
+        .consumedCapacity(ConsumedCapacity
+                              .builder()
+                              .tableName(AbstractService.TABLE_NAME)
+                              .capacityUnits(units)
+                              .table(Capacity
+                                         .builder()
+                                         .capacityUnits(units)
+                                         .build())
+                              .build())
+        .build();
+  }
+
+  private static RetryPolicyContext throttled(SdkRequest request, int retriesAttempted) {
+    return RetryPolicyContext
+        .builder()
+        .originalRequest(request)
+        .httpStatusCode(400)
+        .exception(ProvisionedThroughputExceededException
+                       .builder()
+                       .statusCode(400)
+                       .awsErrorDetails(AwsErrorDetails
+                                            .builder()
+                                            .errorCode("ProvisionedThroughputExceededException")
+                                            .build())
+                       .build())
+        .executionAttributes(attributes(request
+                                            .getClass()
+                                            .getSimpleName()
+                                            .replace("Request", ""), ClientType.SYNC))
+        .retriesAttempted(retriesAttempted)
+        .build();
+  }
+
+  private static InterceptorContext context(SdkRequest request, SdkResponse response) {
+    return InterceptorContext
+        .builder()
+        .request(request)
+        .response(response)
+        .build();
+  }
+
+  private static ExecutionAttributes attributes(String operation, ClientType clientType) {
+    return new ExecutionAttributes()
+        .putAttribute(SdkExecutionAttribute.OPERATION_NAME, operation)
+        .putAttribute(SdkExecutionAttribute.CLIENT_TYPE, clientType);
+  }
+
+  private void advance(Duration duration) {
+    now.addAndGet(duration.toNanos());
+  }
+
+  private double balance() {
+    return gauge("dynamodb.capacity.balance");
+  }
+
+  private double rate() {
+    return gauge("dynamodb.capacity.rate");
+  }
+
+  private double gauge(String name) {
+    return registry
+        .get(name)
+        .tag("kind", "read")
+        .gauge()
+        .value();
+  }
+}
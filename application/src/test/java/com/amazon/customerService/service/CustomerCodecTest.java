@@ -0,0 +1,151 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import static java.time.ZoneOffset.UTC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CustomerCodecTest {
+
+  private static final DateTimeFormatter REFERENCE = DateTimeFormatter
+      .ofPattern(CustomerCodec.DATE_PATTERN)
+      .withZone(UTC);
+
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+
+  private static final List<String> BOUNDARIES = List.of(
+      "1970-01-01T00:00:00.000Z",
+      "1970-01-01T00:00:00.001Z",
+      "1969-12-31T23:59:59.999Z",
+      "1970-12-31T23:59:59.999Z",
+      "1972-02-29T12:34:56.789Z",
+      "1999-12-31T23:59:59.999Z",
+      "2000-02-29T00:00:00.000Z",
+      "2000-03-01T00:00:00.000Z",
+      "2024-02-29T23:59:59.999Z",
+      "2100-02-28T23:59:59.999Z",
+      "2100-03-01T00:00:00.000Z",
+      "2400-02-29T00:00:00.000Z",
+      "9999-12-31T00:00:00.000Z",
+      "9999-12-31T23:59:59.999Z");
+
+  @Test
+  void formatsLikeDateTimeFormatterAtBoundaries() {
+    for (String date : BOUNDARIES) {
+      Instant instant = Instant.parse(date);
+      assertEquals(REFERENCE.format(instant), CustomerCodec.formatDate(instant));
+      assertEquals(date, CustomerCodec.formatDate(instant));
+    }
+  }
+
+  @Test
+  void formatsLikeDateTimeFormatterEveryDayAroundTheEpoch() {
+    long last = LocalDate
+        .of(2101, 1, 1)
+        .toEpochDay();
+    for (long epochDay = -400; epochDay <= last; epochDay++) {
+      Instant instant = Instant.ofEpochMilli(epochDay * MILLIS_PER_DAY + epochDay % 1000);
+      assertEquals(REFERENCE.format(instant), CustomerCodec.formatDate(instant));
+    }
+  }
+
+  @Test
+  void formatsLikeDateTimeFormatterAcrossTheFastRange() {
+    long max = LocalDate
+        .of(9999, 12, 31)
+        .toEpochDay();
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      Instant instant = Instant.ofEpochMilli((long) (random.nextDouble() * (max + 1)
+          * MILLIS_PER_DAY));
+      assertEquals(REFERENCE.format(instant), CustomerCodec.formatDate(instant));
+    }
+  }
+
+  @Test
+  void fallsBackOutsideTheFastRange() {
+    for (String date : List.of("1900-01-01T00:00:00.000Z", "1600-02-29T12:00:00.000Z",
+                               "0001-01-01T00:00:00.000Z", "+10000-01-01T00:00:00.000Z")) {
+      Instant instant = Instant.parse(date);
+      assertEquals(REFERENCE.format(instant), CustomerCodec.formatDate(instant));
+      assertEquals(instant, CustomerCodec.parseDate(CustomerCodec.formatDate(instant)));
+    }
+  }
+
+  @Test
+  void parsesWhatItFormats() {
+    for (String date : BOUNDARIES) {
+      Instant instant = Instant.parse(date);
+      assertEquals(instant, CustomerCodec.parseDate(date));
+      assertEquals(instant, CustomerCodec.parseDate(REFERENCE.format(instant)));
+    }
+    Random random = new Random(7);
+    for (int i = 0; i < 100_000; i++) {
+      Instant instant = Instant.ofEpochMilli(random.nextLong() % (400L * 365 * MILLIS_PER_DAY));
+      assertEquals(instant, CustomerCodec.parseDate(CustomerCodec.formatDate(instant)));
+    }
+  }
+
+  @Test
+  void parsesFixedFormatBeforeTheEpoch() {
+    for (String date : List.of("1969-12-31T23:59:59.999Z", "1900-02-28T00:00:00.000Z",
+                               "1600-02-29T12:00:00.000Z", "0001-01-01T00:00:00.000Z",
+                               "0000-02-29T00:00:00.000Z", "0000-01-01T00:00:00.000Z")) {
+      assertEquals(OffsetDateTime
+                       .parse(date)
+                       .toInstant(), CustomerCodec.parseDate(date));
+    }
+  }
+
+  @Test
+  void fallsBackToIsoParsing() {
+    for (String date : List.of("2023-05-01T10:15:30Z", "2023-05-01T10:15:30.1Z",
+                               "2023-05-01T10:15:30.123456Z", "2023-05-01T10:15:30.123")) {
+      assertEquals(Instant.parse(date.endsWith("Z") ? date : date + "Z"),
+                   CustomerCodec.parseDate(date));
+    }
+  }
+
+  @Test
+  void rejectsDatesThatDoNotExist() {
+    for (String date : List.of("2023-02-29T00:00:00.000Z", "2100-02-29T00:00:00.000Z",
+                               "2023-04-31T00:00:00.000Z", "2023-13-01T00:00:00.000Z",
+                               "2023-01-01T24:00:00.000Z", "2023-01-01T00:60:00.000Z")) {
+      assertThrows(DateTimeParseException.class, () -> CustomerCodec.parseDate(date));
+    }
+  }
+
+  @Test
+  void formatsTheRegistrationDay() {
+    assertEquals("1970-01-01", CustomerCodec.formatDay(Instant.EPOCH));
+    assertEquals("2024-02-29", CustomerCodec.formatDay(Instant.parse("2024-02-29T23:59:59.999Z")));
+    assertEquals("1969-12-31", CustomerCodec.formatDay(Instant.ofEpochMilli(-1)));
+  }
+}
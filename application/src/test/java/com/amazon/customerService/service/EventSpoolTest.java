@@ -0,0 +1,197 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventSpoolTest {
+
+  /**
+   * Events of 10 bytes make records of 18, three fit into a segment.
+   */
+  private static final int SEGMENT_SIZE = 64;
+  private static final int RECORD_SIZE  = 18;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void returnsEventsInOrderUntilCommitted() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      spool.appendAll(events(0, 2));
+      spool.append(event(2));
+
+      assertEquals(events(0, 2), spool.peek(2));
+      assertEquals(List.of(event(2)), spool.peek(10));
+      spool.rewind();
+      assertEquals(events(0, 3), spool.peek(10));
+      spool.commit();
+
+      assertTrue(spool.isEmpty());
+      assertEquals(List.of(), spool.peek(10));
+    }
+  }
+
+  @Test
+  void rollsOverIntoNewSegmentsAndDeletesReadOnes() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      spool.appendAll(events(0, 7));
+      assertEquals(3, spool.segmentCount());
+
+      assertEquals(events(0, 4), spool.peek(4));
+      spool.commit();
+      assertEquals(2, spool.segmentCount());
+
+      assertEquals(events(4, 7), spool.peek(10));
+      spool.commit();
+      assertEquals(1, spool.segmentCount());
+      assertTrue(spool.isEmpty());
+    }
+  }
+
+  @Test
+  void resumesAtCheckpointAfterRestart() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      spool.appendAll(events(0, 5));
+      spool.peek(4);
+      spool.commit();
+      // peeked but not committed, so delivered again
+      spool.peek(1);
+    }
+
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      assertEquals(1, spool.segmentCount());
+      assertEquals(List.of(event(4)), spool.peek(10));
+      spool.append(event(5));
+      assertEquals(List.of(event(5)), spool.peek(10));
+    }
+  }
+
+  @Test
+  void discardsTornTailOnRecovery() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      spool.appendAll(events(0, 2));
+    }
+    // header of a third record whose payload never reached the disk
+    ByteBuffer torn = ByteBuffer.allocate(8);
+    torn.putInt(10);
+    torn.putInt(crc(event(2)));
+    write(segment(0), 2 * RECORD_SIZE, torn.array());
+
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      assertEquals(events(0, 2), spool.peek(10));
+      spool.append(event(3));
+      assertEquals(List.of(event(3)), spool.peek(10));
+    }
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      assertEquals(List.of(event(0), event(1), event(3)), spool.peek(10));
+    }
+  }
+
+  @Test
+  void stopsRecoveryAtFirstRecordWithBadCrc() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      spool.appendAll(events(0, 3));
+    }
+    write(segment(0), RECORD_SIZE + 8, "x".getBytes(UTF_8));
+
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      // the corrupt record and the intact one after it are discarded
+      assertEquals(List.of(event(0)), spool.peek(10));
+      spool.append(event(3));
+      assertEquals(List.of(event(3)), spool.peek(10));
+    }
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      assertEquals(List.of(event(0), event(3)), spool.peek(10));
+    }
+  }
+
+  @Test
+  void skipsCorruptRecordOfSealedSegment() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      spool.appendAll(events(0, 4));
+      assertEquals(2, spool.segmentCount());
+    }
+    // recovery only validates the last segment, the sealed one is checked as it is read
+    write(segment(0), RECORD_SIZE + 8, "x".getBytes(UTF_8));
+
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      assertEquals(List.of(event(0), event(2), event(3)), spool.peek(10));
+      spool.commit();
+    }
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      assertEquals(List.of(), spool.peek(10));
+    }
+  }
+
+  @Test
+  void rejectsBatchWithOversizedEventAsAWhole() throws IOException {
+    try (EventSpool spool = new EventSpool(directory, SEGMENT_SIZE)) {
+      List<String> batch = List.of(event(0), "x".repeat(SEGMENT_SIZE));
+
+      assertThrows(IllegalArgumentException.class, () -> spool.appendAll(batch));
+      assertTrue(spool.isEmpty());
+      assertEquals(List.of(), spool.peek(10));
+    }
+  }
+
+  private static String event(int index) {
+    return String.format("event-%04d", index);
+  }
+
+  private static List<String> events(int from, int to) {
+    return IntStream
+        .range(from, to)
+        .mapToObj(EventSpoolTest::event)
+        .collect(Collectors.toList());
+  }
+
+  private static int crc(String event) {
+    CRC32 crc = new CRC32();
+    crc.update(event.getBytes(UTF_8));
+    return (int) crc.getValue();
+  }
+
+  private Path segment(long id) {
+    return directory.resolve(String.format("%020d%s", id, EventSpool.SEGMENT_SUFFIX));
+  }
+
+  private static void write(Path file, int position, byte[] bytes) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(bytes), position);
+      channel.force(true);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+#!/bin/bash
+####
+# Compares the worker pool, virtual threads and the async client under saturation: the same
+# LoadTest run against /customers on the default build, /async/customers on the same build and
+# /customers on a build with virtual threads enabled. The worker pool is capped at MAX_THREADS and
+# the arrival rate is chosen so that more requests are in flight than it has threads, which is
+# the only load at which the three models differ. Needs Java 21 for the build and the service.
+#
+# $ docker run -d -p 8000:8000 amazon/dynamodb-local
+# $ ./compare-models.sh
+# $ RATE=1000 MAX_THREADS=8 ./compare-models.sh
+#
+# RATE (600 requests/s), MAX_THREADS (4) and DURATION (60s) override the defaults. With
+# DynamoDB Local answering in about 12 ms, 600 requests/s keep about 7 requests in flight.
+# Summaries are in target/load/<model>.txt, histograms under target/load/<model>/.
+###
+set -euo pipefail
+
+RATE=${RATE:-600}
+MAX_THREADS=${MAX_THREADS:-4}
+DURATION=${DURATION:-60s}
+APPLICATION=$(dirname "$0")/../application
+BENCHMARKS=$(dirname "$0")
+
+version=$(java -version 2>&1 | awk -F '"' '/version/ { split($2, v, "."); print v[1] }')
+if [ "$version" -lt 21 ]; then
+  echo "Virtual threads need Java 21, found Java $version" >&2
+  exit 1
+fi
+
+(cd "$APPLICATION" && ./mvnw -q package -DskipTests)
+(cd "$APPLICATION" && ./mvnw -q package -DskipTests -Dcustomer-service.virtual-threads.enabled=true \
+  -Dquarkus.package.output-directory=vt-app)
+(cd "$BENCHMARKS" && mvn -q package -DskipTests)
+
+run() {
+  local model=$1
+  shift
+  java -Dload.rate="$RATE" -Dload.duration="$DURATION" -Dload.output="target/load/$model" \
+    -Dload.jvm-args="-Dquarkus.thread-pool.max-threads=$MAX_THREADS -Djdk.tracePinnedThreads=short" \
+    "$@" -cp "$BENCHMARKS/target/benchmarks.jar" com.amazon.customerService.benchmark.LoadTest \
+    | tee "$BENCHMARKS/target/load/$model.txt"
+}
+
+mkdir -p "$BENCHMARKS/target/load"
+run worker
+run async -Dload.path=/async/customers
+run virtual -Dload.service="$APPLICATION/target/vt-app/quarkus-run.jar"
@@ -0,0 +1,84 @@
+#!/bin/bash
+####
+# Compares the startup of JVM container images, by default the plain `runtime` and the `appcds`
+# stage of Dockerfile.jvm: the time from `docker run` until the liveness check answers, and the
+# latency of the first request, a one-item list that creates the DynamoDB client and reads the
+# table. Containers get the CPU and memory limits of the EKS pods and use DynamoDB Local on the
+# host network, the Customer table is created if needed.
+#
+# $ (cd ../application && ./mvnw package -DskipTests)
+# $ docker run -d -p 8000:8000 amazon/dynamodb-local
+# $ ./image-startup.sh
+# $ RUNS=10 ./image-startup.sh my.registry.com/customer-service:1.0 customer-service:appcds
+#
+# RUNS (5), PORT (8080), DYNAMODB_ENDPOINT (http://localhost:8000), CPUS (0.5) and MEMORY (256m)
+# override the defaults. Needs curl 7.75 or later.
+###
+set -euo pipefail
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-8080}
+DYNAMODB_ENDPOINT=${DYNAMODB_ENDPOINT:-http://localhost:8000}
+CPUS=${CPUS:-0.5}
+MEMORY=${MEMORY:-256m}
+APPLICATION=$(dirname "$0")/../application
+
+if [ $# -eq 0 ]; then
+  for stage in runtime appcds; do
+    docker build -q -f "$APPLICATION/src/main/docker/Dockerfile.jvm" --target "$stage" \
+      -t "aws-eks-quarkus-example-jvm:$stage" "$APPLICATION" > /dev/null
+  done
+  set -- aws-eks-quarkus-example-jvm:runtime aws-eks-quarkus-example-jvm:appcds
+fi
+
+curl -s -o /dev/null --aws-sigv4 "aws:amz:eu-west-1:dynamodb" --user local:local \
+  -H "X-Amz-Target: DynamoDB_20120810.CreateTable" \
+  -H "Content-Type: application/x-amz-json-1.0" \
+  -d '{"TableName":"Customer","BillingMode":"PAY_PER_REQUEST",
+       "AttributeDefinitions":[{"AttributeName":"Id","AttributeType":"S"}],
+       "KeySchema":[{"AttributeName":"Id","KeyType":"HASH"}]}' \
+  "$DYNAMODB_ENDPOINT"
+
+millis() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# min / median / max of the arguments
+spread() {
+  sort -n <<< "$(printf '%s\n' "$@")" | awk '{ v[NR] = $1 } END { printf "%d / %d / %d", v[1], v[int((NR + 1) / 2)], v[NR] }'
+}
+
+printf '%-50s  %4s  %24s  %30s\n' Image Runs "Started ms (min/med/max)" \
+  "First request ms (min/med/max)"
+for image in "$@"; do
+  started=()
+  first=()
+  for run in $(seq "$RUNS"); do
+    launched=$(millis)
+    container=$(docker run -d --rm --network host --cpus "$CPUS" --memory "$MEMORY" \
+      -e QUARKUS_HTTP_PORT="$PORT" \
+      -e QUARKUS_DYNAMODB_ENDPOINT_OVERRIDE="$DYNAMODB_ENDPOINT" \
+      -e QUARKUS_DYNAMODB_AWS_CREDENTIALS_TYPE=default \
+      -e AWS_REGION=eu-west-1 -e AWS_ACCESS_KEY_ID=local -e AWS_SECRET_ACCESS_KEY=local \
+      -e CUSTOMER_SERVICE_EVENTS_SPOOL_DIRECTORY=/tmp/spool \
+      "$image")
+    until curl -sf -o /dev/null "http://localhost:$PORT/q/health/live"; do
+      if [ $(( $(millis) - launched )) -gt 120000 ]; then
+        echo "$image not live after 120s, see docker logs $container" >&2
+        exit 1
+      fi
+      sleep 0.02
+    done
+    started+=($(( $(millis) - launched )))
+    answer=$(curl -s -o /dev/null -w '%{http_code} %{time_total}' \
+      "http://localhost:$PORT/customers?limit=1")
+    if [ "${answer% *}" != 200 ]; then
+      echo "$image answered ${answer% *}, see docker logs $container" >&2
+      exit 1
+    fi
+    first+=($(awk '{ printf "%d", $2 * 1000 }' <<< "$answer"))
+    docker stop "$container" > /dev/null
+  done
+  printf '%-50s  %4d  %24s  %30s\n' "$image" "$RUNS" "$(spread "${started[@]}")" \
+    "$(spread "${first[@]}")"
+done
@@ -0,0 +1,113 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, typically from two commits, and
+ * prints the change of every primary score. Differences within the combined error margins are
+ * marked with {@code ~}.
+ * <pre>
+ * java -cp target/benchmarks.jar com.amazon.customerService.benchmark.CompareResults \
+ *     before.json after.json
+ * </pre>
+ */
+public final class CompareResults {
+
+  private CompareResults() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: CompareResults <before.json> <after.json>");
+      System.exit(2);
+    }
+    Map<String, JsonNode> before = read(args[0]);
+    Map<String, JsonNode> after = read(args[1]);
+
+    System.out.printf("%-70s %12s %12s %9s%n", "Benchmark", "Before", "After", "Change");
+    for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+      JsonNode current = entry
+          .getValue()
+          .path("primaryMetric");
+      JsonNode previous = before.containsKey(entry.getKey())
+          ? before
+          .get(entry.getKey())
+          .path("primaryMetric")
+          : null;
+      String unit = current
+          .path("scoreUnit")
+          .asText();
+
+      if (previous == null) {
+        System.out.printf("%-70s %12s %12.3f %9s %s%n", entry.getKey(), "-",
+                          current.path("score").asDouble(), "new", unit);
+        continue;
+      }
+
+      double was = previous
+          .path("score")
+          .asDouble();
+      double now = current
+          .path("score")
+          .asDouble();
+      double margin = previous
+          .path("scoreError")
+          .asDouble(0) + current
+          .path("scoreError")
+          .asDouble(0);
+      String change = String.format("%+.1f%%", (now - was) / was * 100);
+      System.out.printf("%-70s %12.3f %12.3f %9s %s%s%n", entry.getKey(), was, now, change, unit,
+                        Math.abs(now - was) <= margin ? " ~" : "");
+    }
+  }
+
+  /**
+   * @return results by benchmark name and parameters
+   */
+  private static Map<String, JsonNode> read(String file) throws IOException {
+    Map<String, JsonNode> results = new LinkedHashMap<>();
+    for (JsonNode result : new ObjectMapper().readTree(new File(file))) {
+      StringBuilder key = new StringBuilder(result
+                                                .path("benchmark")
+                                                .asText()
+                                                .replace("com.amazon.customerService.benchmark.",
+                                                         ""));
+      result
+          .path("params")
+          .fields()
+          .forEachRemaining(param -> key
+              .append(' ')
+              .append(param.getKey())
+              .append('=')
+              .append(param
+                          .getValue()
+                          .asText()));
+      results.put(key.toString(), result);
+    }
+    return results;
+  }
+}
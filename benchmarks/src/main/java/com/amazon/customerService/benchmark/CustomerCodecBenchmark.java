@@ -0,0 +1,171 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import static com.amazon.customerService.service.AbstractService.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.service.AbstractService.EMAIL_COLUMN;
+import static com.amazon.customerService.service.AbstractService.ID_COLUMN;
+import static com.amazon.customerService.service.AbstractService.NAME_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_DATE_COLUMN;
+import static java.time.ZoneOffset.UTC;
+import static java.time.format.DateTimeFormatter.ISO_DATE_TIME;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.service.CustomerCodec;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Per-item cost of converting customers to and from DynamoDB items, {@link CustomerCodec}
+ * against the code it replaced ({@code legacy*}). Run with {@code -prof gc} for the bytes
+ * allocated per item ({@code gc.alloc.rate.norm}).
+ * <pre>
+ * java -jar target/benchmarks.jar CustomerCodecBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerCodecBenchmark {
+
+  private static final DateTimeFormatter LEGACY_FORMATTER = DateTimeFormatter
+      .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+      .withZone(UTC);
+
+  private Customer                    customer;
+  private Map<String, AttributeValue> stringDateItem;
+  private Map<String, AttributeValue> epochMillisItem;
+
+  @Setup
+  public void setUp() {
+    stringDateItem  = LocalDynamoDb.customerItem(42);
+    customer        = Customer.from(stringDateItem);
+    epochMillisItem = CustomerCodec.encode(customer, true);
+  }
+
+  @Benchmark
+  public Customer legacyDecode() {
+    return legacyFrom(stringDateItem);
+  }
+
+  @Benchmark
+  public Customer decodeStringDate() {
+    return CustomerCodec.decode(stringDateItem);
+  }
+
+  @Benchmark
+  public Customer decodeEpochMillis() {
+    return CustomerCodec.decode(epochMillisItem);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> legacyEncode() {
+    return legacyItem(customer);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> encodeStringDate() {
+    return CustomerCodec.encode(customer, false);
+  }
+
+  @Benchmark
+  public Map<String, AttributeValue> encodeEpochMillis() {
+    return CustomerCodec.encode(customer, true);
+  }
+
+  /**
+   * {@code Customer.from} before the codec.
+   */
+  private static Customer legacyFrom(Map<String, AttributeValue> item) {
+    Customer customer = new Customer();
+
+    customer.setAccountNumber(item
+                                  .get(ACCOUNT_NUMBER_COLUMN)
+                                  .s());
+    customer.setEmail(item
+                          .get(EMAIL_COLUMN)
+                          .s());
+    customer.setName(item
+                         .get(NAME_COLUMN)
+                         .s());
+    customer.setAccountNumber(item
+                                  .get(ACCOUNT_NUMBER_COLUMN)
+                                  .s());
+    customer.setId(item
+                       .get(ID_COLUMN)
+                       .s());
+
+    customer.setRegDate(LocalDateTime
+                            .parse(item
+                                       .get(REGISTRATION_DATE_COLUMN)
+                                       .s(), ISO_DATE_TIME)
+                            .toInstant(UTC));
+
+    return customer;
+  }
+
+  /**
+   * {@code AbstractService.putRequest} item building before the codec.
+   */
+  private static Map<String, AttributeValue> legacyItem(Customer customer) {
+    Map<String, AttributeValue> item = new HashMap<>();
+
+    item.put(ID_COLUMN, AttributeValue
+        .builder()
+        .s(customer.getId())
+        .build());
+    item.put(NAME_COLUMN, AttributeValue
+        .builder()
+        .s(customer.getName())
+        .build());
+    item.put(EMAIL_COLUMN, AttributeValue
+        .builder()
+        .s(customer.getEmail())
+        .build());
+    item.put(ACCOUNT_NUMBER_COLUMN, AttributeValue
+        .builder()
+        .s(customer.getAccountNumber())
+        .build());
+    item.put(REGISTRATION_DATE_COLUMN, AttributeValue
+        .builder()
+        .s(LEGACY_FORMATTER.format(customer.getRegDate()))
+        .build());
+
+    return item;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the EventBridge PutEvents API. Point the service at it with
+ * {@code customer-service.eventbridge.endpoint=http://localhost:<port>}.
+ * <p>
+ * Each entry is rejected with {@code ThrottlingException} with probability {@code failureRate},
+ * and each call is answered after {@code latencyMillis}, so retries and backlogs can be
+ * reproduced locally. Run it standalone with
+ * {@code java -cp target/benchmarks.jar com.amazon.customerService.benchmark.EventBridgeStub
+ * [port] [failureRate] [latencyMillis]}.
+ */
+public final class EventBridgeStub implements AutoCloseable {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final HttpServer server;
+  private final double     failureRate;
+  private final long       latencyMillis;
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  private EventBridgeStub(int port, double failureRate, long latencyMillis) throws IOException {
+    this.failureRate   = failureRate;
+    this.latencyMillis = latencyMillis;
+
+    server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  public static EventBridgeStub start(int port, double failureRate, long latencyMillis)
+      throws IOException {
+    return new EventBridgeStub(port, failureRate, latencyMillis);
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 9000;
+    EventBridgeStub stub = start(port,
+                                 args.length > 1 ? Double.parseDouble(args[1]) : 0,
+                                 args.length > 2 ? Long.parseLong(args[2]) : 0);
+    System.out.println("EventBridge stub listening on http://localhost:" + stub.port());
+  }
+
+  public int port() {
+    return server
+        .getAddress()
+        .getPort();
+  }
+
+  public long acceptedEvents() {
+    return accepted.get();
+  }
+
+  public long rejectedEvents() {
+    return rejected.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    JsonNode request;
+    try (InputStream body = exchange.getRequestBody()) {
+      request = MAPPER.readTree(body);
+    }
+    if (latencyMillis > 0) {
+      try {
+        Thread.sleep(latencyMillis);
+      }
+      catch (InterruptedException exc) {
+        Thread
+            .currentThread()
+            .interrupt();
+      }
+    }
+
+    ObjectNode response = MAPPER.createObjectNode();
+    ArrayNode entries = response.putArray("Entries");
+    int failed = 0;
+    for (JsonNode ignored : request.path("Entries")) {
+      if (ThreadLocalRandom
+              .current()
+              .nextDouble() < failureRate) {
+        entries
+            .addObject()
+            .put("ErrorCode", "ThrottlingException")
+            .put("ErrorMessage", "Rate exceeded");
+        failed++;
+      }
+      else {
+        entries
+            .addObject()
+            .put("EventId", UUID
+                .randomUUID()
+                .toString());
+      }
+    }
+    response.put("FailedEntryCount", failed);
+    accepted.addAndGet(entries.size() - failed);
+    rejected.addAndGet(failed);
+
+    byte[] bytes = MAPPER.writeValueAsBytes(response);
+    exchange
+        .getResponseHeaders()
+        .set("Content-Type", "application/x-amz-json-1.1");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
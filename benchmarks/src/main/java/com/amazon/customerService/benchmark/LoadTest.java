@@ -0,0 +1,510 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService.benchmark;
+
+import static com.amazon.customerService.CustomerResource.NEXT_CURSOR_HEADER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Open-loop load test of {@code CustomerResource}, or with {@code load.path} of the same endpoints
+ * elsewhere such as {@code /async/customers}. Starts the service, in JVM or native mode,
+ * against DynamoDB Local and an in-process {@link EventBridgeStub}, sends a weighted mix of
+ * list, get, add and delete requests at a fixed arrival rate and reports latency percentiles,
+ * throughput and error rates.
+ * <p>
+ * Requests are sent on schedule whether or not earlier ones have been answered, and latency is
+ * measured from the time a request was due rather than from when it was actually sent, so a
+ * stalled service shows up in the percentiles instead of slowing the load down (coordinated
+ * omission). Configured with system properties, see the README.
+ */
+public final class LoadTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  enum Operation {
+    LIST, GET, ADD, DELETE
+  }
+
+  private final HttpClient    client;
+  private final URI           baseUri;
+  private final String        path;
+  private final Duration      timeout;
+  private final int           listLimit;
+  private final IdPool        ids;
+  private final Recorder      progress = new Recorder(3);
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong    added    = new AtomicLong();
+
+  private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+  /**
+   * Requests due before this {@link System#nanoTime()} belong to the warm-up and are not counted.
+   */
+  private volatile long    measureFrom = Long.MAX_VALUE;
+  private volatile boolean finished;
+  private long             maxDispatchLagNanos;
+  private Histogram        interval;
+
+  LoadTest(HttpClient client, URI baseUri, String path, Duration timeout, int listLimit,
+           IdPool ids) {
+    this.client    = client;
+    this.baseUri   = baseUri;
+    this.path      = path;
+    this.timeout   = timeout;
+    this.listLimit = listLimit;
+    this.ids       = ids;
+    for (Operation operation : Operation.values()) {
+      stats.put(operation, new Stats());
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    String mode = System.getProperty("load.mode", "jvm");
+    double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+    Duration warmup = duration(System.getProperty("load.warmup", "15s"));
+    Duration duration = duration(System.getProperty("load.duration", "60s"));
+    Duration timeout = duration(System.getProperty("load.timeout", "10s"));
+    Duration reportInterval = duration(System.getProperty("load.report-interval", "5s"));
+    Map<Operation, Integer> mix = mix(System.getProperty("load.mix",
+                                                         "list=5,get=70,add=15,delete=10"));
+    int listLimit = Integer.getInteger("load.list-limit", 50);
+    String path = System.getProperty("load.path", "/customers");
+    Path output = Path.of(System.getProperty("load.output", "target/load"));
+
+    boolean external = mode.equals("external");
+    if (!external) {
+      LocalDynamoDb.seed(LocalDynamoDb.client(), Integer.getInteger("load.items", 10000));
+    }
+
+    HttpClient client = HttpClient
+        .newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(timeout)
+        .build();
+
+    try (EventBridgeStub stub = external ? null : EventBridgeStub.start(
+        0,
+        Double.parseDouble(System.getProperty("load.eventbridge.failure-rate", "0")),
+        duration(System.getProperty("load.eventbridge.latency", "20ms")).toMillis());
+         ServiceProcess service = external ? null : startService(mode, stub, output)) {
+
+      URI baseUri = external
+          ? URI.create(System.getProperty("load.url", "http://localhost:8080"))
+          : service.baseUri();
+      IdPool ids = IdPool.load(client, baseUri, Integer.getInteger("load.ids", 5000));
+      System.out.printf("%s mode, %s, %d known customers%s%n", mode, path, ids.size(),
+                        service == null ? "" : ", started in " + service.startupMillis() + " ms");
+
+      LoadTest test = new LoadTest(client, baseUri, path, timeout, listLimit, ids);
+      test.run(rate, warmup, duration, mix, Long.getLong("load.seed", 42), reportInterval);
+      test.report(System.out, mode, rate, duration);
+      test.writeHistograms(output.resolve(mode));
+
+      if (service != null) {
+        System.out.printf("Peak RSS %d MB, startup %d ms%n", service.peakRssBytes() >> 20,
+                          service.startupMillis());
+      }
+      if (stub != null) {
+        System.out.printf("EventBridge stub accepted %d events, rejected %d%n",
+                          stub.acceptedEvents(), stub.rejectedEvents());
+      }
+    }
+  }
+
+  private static ServiceProcess startService(String mode, EventBridgeStub stub, Path output)
+      throws IOException, InterruptedException {
+    boolean nativeImage = mode.equals("native");
+    if (!nativeImage && !mode.equals("jvm")) {
+      throw new IllegalArgumentException("load.mode must be jvm, native or external: " + mode);
+    }
+    Path executable = System.getProperty("load.service") == null
+        ? ServiceProcess.defaultExecutable(nativeImage)
+        : Path.of(System.getProperty("load.service"));
+    String jvmArgs = System
+        .getProperty("load.jvm-args", "")
+        .trim();
+    Map<String, String> config = ServiceProcess.localConfig(
+        System.getProperty("dynamodb.endpoint", "http://localhost:8000"), stub.port());
+    config.put("customer-service.events.spool.directory", output
+        .resolve("spool")
+        .toAbsolutePath()
+        .toString());
+
+    return ServiceProcess.start(
+        executable, nativeImage,
+        jvmArgs.isEmpty() ? List.of() : Arrays.asList(jvmArgs.split("\\s+")),
+        Integer.getInteger("load.port", 8080),
+        config,
+        output.resolve(mode + "-service.log"));
+  }
+
+  /**
+   * Sends one request every {@code 1 / rate} seconds, first for the warm-up and then for the
+   * measured duration, and waits for the outstanding answers.
+   */
+  void run(double rate, Duration warmup, Duration duration, Map<Operation, Integer> mix, long seed,
+           Duration reportInterval) throws InterruptedException {
+    Operation[] weighted = mix
+        .entrySet()
+        .stream()
+        .flatMap(entry -> Collections
+            .nCopies(entry.getValue(), entry.getKey())
+            .stream())
+        .toArray(Operation[]::new);
+    Random random = new Random(seed);
+    double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+
+    long start = System.nanoTime();
+    long end = start + warmup.toNanos() + duration.toNanos();
+    measureFrom = start + warmup.toNanos();
+    long nextReport = start + reportInterval.toNanos();
+
+    for (long i = 0; ; i++) {
+      long due = start + (long) (i * interval);
+      if (due >= end) {
+        break;
+      }
+      long now;
+      while ((now = System.nanoTime()) < due) {
+        LockSupport.parkNanos(due - now);
+      }
+      maxDispatchLagNanos = Math.max(maxDispatchLagNanos, now - due);
+      send(weighted[random.nextInt(weighted.length)], due, random);
+
+      if (now >= nextReport) {
+        printProgress(now - start, due < measureFrom);
+        nextReport += reportInterval.toNanos();
+      }
+    }
+
+    long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+    while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    finished = true;
+  }
+
+  private void send(Operation operation, long due, Random random) {
+    HttpRequest.Builder request = HttpRequest
+        .newBuilder()
+        .timeout(timeout)
+        .header("Accept", "application/json");
+    String id = null;
+    switch (operation) {
+      case LIST -> request.uri(baseUri.resolve(path + "?limit=" + listLimit));
+      case GET -> request.uri(customerUri(ids
+                                              .pick(random)
+                                              .orElseGet(() -> UUID
+                                                  .randomUUID()
+                                                  .toString())));
+      case ADD -> {
+        long n = added.incrementAndGet();
+        request
+            .uri(baseUri.resolve(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                "{\"name\":\"Load %d\",\"email\":\"load%d@example.com\","
+                    + "\"accountNumber\":\"LOAD-%010d\"}", n, n, n)));
+      }
+      case DELETE -> {
+        id = ids
+            .take(random)
+            .orElseGet(() -> UUID
+                .randomUUID()
+                .toString());
+        request
+            .uri(customerUri(id))
+            .DELETE();
+      }
+    }
+
+    inFlight.incrementAndGet();
+    long sent = System.nanoTime();
+    client
+        .sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+        .whenComplete((response, failure) -> {
+          long now = System.nanoTime();
+          inFlight.decrementAndGet();
+          if (response != null && operation == Operation.ADD && response.statusCode() == 200) {
+            ids.put(idOf(response.body()));
+          }
+          record(operation, due, sent, now, response == null ? 0 : response.statusCode());
+        });
+  }
+
+  private URI customerUri(String id) {
+    return baseUri.resolve(path + "/" + URLEncoder.encode(id, UTF_8));
+  }
+
+  private static String idOf(byte[] body) {
+    try {
+      return MAPPER
+          .readTree(body)
+          .path("id")
+          .asText(null);
+    }
+    catch (IOException exc) {
+      return null;
+    }
+  }
+
+  /**
+   * @param status HTTP status, {@code 0} when no answer arrived in time or the connection failed
+   */
+  private void record(Operation operation, long due, long sent, long now, int status) {
+    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(now - due);
+    progress.recordValue(latencyMicros);
+    if (due < measureFrom || finished) {
+      return;
+    }
+    Stats operationStats = stats.get(operation);
+    operationStats.latency.recordValue(latencyMicros);
+    operationStats.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sent));
+    operationStats.statuses
+        .computeIfAbsent(status, ignored -> new LongAdder())
+        .increment();
+  }
+
+  private void printProgress(long elapsedNanos, boolean warmingUp) {
+    interval = progress.getIntervalHistogram(interval);
+    System.out.printf("%6ds %-8s %7d answers  p50 %8.2f  p99 %8.2f  max %8.2f ms  in flight %d%n",
+                      TimeUnit.NANOSECONDS.toSeconds(elapsedNanos),
+                      warmingUp ? "warm-up" : "measure", interval.getTotalCount(),
+                      millis(interval.getValueAtPercentile(50)),
+                      millis(interval.getValueAtPercentile(99)),
+                      millis(interval.getMaxValue()), inFlight.get());
+  }
+
+  void report(PrintStream out, String mode, double rate, Duration duration) {
+    double seconds = duration.toNanos() / 1e9;
+    out.printf("%n%s mode, %.0f requests/s offered for %ds, max dispatch lag %.2f ms, "
+                   + "%d unanswered%n", mode, rate, duration.toSeconds(),
+               maxDispatchLagNanos / 1e6, inFlight.get());
+    out.printf("%-8s %9s %9s %8s %7s %9s %9s %9s %9s %9s %9s  %s%n", "", "requests", "per s",
+               "errors", "error%", "p50", "p90", "p99", "p99.9", "max", "svc p99", "statuses");
+
+    Histogram total = new Histogram(3);
+    Histogram totalService = new Histogram(3);
+    long totalErrors = 0;
+    for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+      Stats operationStats = entry.getValue();
+      long errors = operationStats.errors();
+      printRow(out, entry
+                   .getKey()
+                   .name()
+                   .toLowerCase(), operationStats.latency, operationStats.serviceTime, errors,
+               seconds, operationStats.statuses.toString());
+      total.add(operationStats.latency);
+      totalService.add(operationStats.serviceTime);
+      totalErrors += errors;
+    }
+    printRow(out, "total", total, totalService, totalErrors, seconds, "");
+    out.println("Latencies in ms from when each request was due; svc p99 from when it was sent."
+                    + " Errors are 5xx answers, timeouts and connection failures (status 0).");
+  }
+
+  private static void printRow(PrintStream out, String name, Histogram latency,
+                               Histogram serviceTime, long errors, double seconds,
+                               String statuses) {
+    long count = latency.getTotalCount();
+    out.printf("%-8s %9d %9.1f %8d %6.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n", name, count,
+               count / seconds, errors, count == 0 ? 0 : 100.0 * errors / count,
+               millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+               millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+               millis(latency.getMaxValue()), millis(serviceTime.getValueAtPercentile(99)),
+               statuses);
+  }
+
+  /**
+   * Writes each operation's latency distribution in the {@code .hgrm} format, which the
+   * HdrHistogram plotter reads, to compare runs or modes.
+   */
+  void writeHistograms(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+      Path file = directory.resolve(entry
+                                        .getKey()
+                                        .name()
+                                        .toLowerCase() + ".hgrm");
+      try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, UTF_8)) {
+        entry
+            .getValue().latency
+            .copy()
+            .outputPercentileDistribution(out, 1000.0);
+      }
+    }
+    System.out.println("Latency distributions written to " + directory);
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  static Duration duration(String value) {
+    String text = value
+        .trim()
+        .toLowerCase();
+    if (text.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+    }
+    long amount = Long.parseLong(text.substring(0, text.length() - 1));
+    return switch (text.charAt(text.length() - 1)) {
+      case 's' -> Duration.ofSeconds(amount);
+      case 'm' -> Duration.ofMinutes(amount);
+      default -> throw new IllegalArgumentException("Expected a duration such as 500ms, 30s or "
+                                                        + "5m: " + value);
+    };
+  }
+
+  /**
+   * Parses weights such as {@code get=70,add=30}; operations left out are not sent.
+   */
+  static Map<Operation, Integer> mix(String value) {
+    Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    for (String part : value.split(",")) {
+      String[] weight = part.split("=");
+      mix.put(Operation.valueOf(weight[0]
+                                    .trim()
+                                    .toUpperCase()), Integer.parseInt(weight[1].trim()));
+    }
+    return mix;
+  }
+
+  private static final class Stats {
+
+    final Histogram               latency     = new ConcurrentHistogram(3);
+    final Histogram               serviceTime = new ConcurrentHistogram(3);
+    final Map<Integer, LongAdder> statuses    = new ConcurrentHashMap<>();
+
+    long errors() {
+      return statuses
+          .entrySet()
+          .stream()
+          .filter(entry -> entry.getKey() == 0 || entry.getKey() >= 500)
+          .mapToLong(entry -> entry
+              .getValue()
+              .sum())
+          .sum();
+    }
+  }
+
+  /**
+   * Ids of existing customers. Gets pick one at random, deletes remove one so that it is not
+   * deleted twice, and successful adds put the new id back, so at equal add and delete rates the
+   * table keeps its size. When the pool runs dry, requests go to random ids and answer 404.
+   */
+  static final class IdPool {
+
+    private final List<String> ids;
+
+    private IdPool(List<String> ids) {
+      this.ids = ids;
+    }
+
+    /**
+     * Pages through the list endpoint, so this works against any running service.
+     */
+    static IdPool load(HttpClient client, URI baseUri, int max)
+        throws IOException, InterruptedException {
+      List<String> ids = new ArrayList<>(max);
+      String cursor = null;
+      do {
+        String query = "/customers?limit=" + Math.min(1000, max - ids.size())
+            + (cursor == null ? "" : "&cursor=" + URLEncoder.encode(cursor, UTF_8));
+        HttpResponse<byte[]> response = client.send(HttpRequest
+                                                        .newBuilder(baseUri.resolve(query))
+                                                        .build(),
+                                                    HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+          throw new IOException("Listing customers answered " + response.statusCode());
+        }
+        for (JsonNode customer : MAPPER.readTree(response.body())) {
+          ids.add(customer
+                      .path("id")
+                      .asText());
+        }
+        cursor = response
+            .headers()
+            .firstValue(NEXT_CURSOR_HEADER)
+            .orElse(null);
+      } while (cursor != null && ids.size() < max);
+      return new IdPool(ids);
+    }
+
+    synchronized int size() {
+      return ids.size();
+    }
+
+    synchronized Optional<String> pick(Random random) {
+      return ids.isEmpty()
+          ? Optional.empty()
+          : Optional.of(ids.get(random.nextInt(ids.size())));
+    }
+
+    synchronized Optional<String> take(Random random) {
+      if (ids.isEmpty()) {
+        return Optional.empty();
+      }
+      int index = random.nextInt(ids.size());
+      String id = ids.get(index);
+      ids.set(index, ids.get(ids.size() - 1));
+      ids.remove(ids.size() - 1);
+      return Optional.of(id);
+    }
+
+    synchronized void put(String id) {
+      if (id != null) {
+        ids.add(id);
+      }
+    }
+  }
+}
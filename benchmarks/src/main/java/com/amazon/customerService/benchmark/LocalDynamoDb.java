@@ -0,0 +1,208 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import static com.amazon.customerService.service.AbstractService.ACCOUNT_NUMBER_COLUMN;
+import static com.amazon.customerService.service.AbstractService.ACCOUNT_NUMBER_INDEX;
+import static com.amazon.customerService.service.AbstractService.EMAIL_COLUMN;
+import static com.amazon.customerService.service.AbstractService.EMAIL_INDEX;
+import static com.amazon.customerService.service.AbstractService.ID_COLUMN;
+import static com.amazon.customerService.service.AbstractService.NAME_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_DATE_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_DAY_COLUMN;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_INDEX;
+import static com.amazon.customerService.service.AbstractService.REGISTRATION_TIME_COLUMN;
+import static com.amazon.customerService.service.AbstractService.TABLE_NAME;
+import static java.time.ZoneOffset.UTC;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Access to a DynamoDB Local instance, by default on {@code http://localhost:8000}. Start one
+ * with {@code docker run -p 8000:8000 amazon/dynamodb-local} or point {@code -Ddynamodb.endpoint}
+ * somewhere else.
+ */
+public final class LocalDynamoDb {
+
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter
+      .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+      .withZone(UTC);
+
+  private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE
+      .withZone(UTC);
+
+  private LocalDynamoDb() {
+  }
+
+  public static DynamoDbClient client() {
+    return DynamoDbClient
+        .builder()
+        .endpointOverride(URI.create(System.getProperty("dynamodb.endpoint",
+                                                        "http://localhost:8000")))
+        .region(Region.EU_WEST_1)
+        .credentialsProvider(StaticCredentialsProvider.create(
+            AwsBasicCredentials.create("local", "local")))
+        .httpClient(ApacheHttpClient
+                        .builder()
+                        .maxConnections(64)
+                        .build())
+        .build();
+  }
+
+  /**
+   * Creates the Customer table if needed and tops it up to at least {@code items} customers.
+   */
+  public static void seed(DynamoDbClient dynamoDB, int items) {
+    try {
+      dynamoDB.describeTable(builder -> builder.tableName(TABLE_NAME));
+    }
+    catch (ResourceNotFoundException exc) {
+      dynamoDB.createTable(builder -> builder
+          .tableName(TABLE_NAME)
+          .keySchema(KeySchemaElement
+                         .builder()
+                         .attributeName(ID_COLUMN)
+                         .keyType(KeyType.HASH)
+                         .build())
+          .attributeDefinitions(attribute(ID_COLUMN, ScalarAttributeType.S),
+                                attribute(EMAIL_COLUMN, ScalarAttributeType.S),
+                                attribute(ACCOUNT_NUMBER_COLUMN, ScalarAttributeType.S),
+                                attribute(REGISTRATION_DAY_COLUMN, ScalarAttributeType.S),
+                                attribute(REGISTRATION_TIME_COLUMN, ScalarAttributeType.N))
+          .globalSecondaryIndexes(index(EMAIL_INDEX, EMAIL_COLUMN, null),
+                                  index(ACCOUNT_NUMBER_INDEX, ACCOUNT_NUMBER_COLUMN, null),
+                                  index(REGISTRATION_INDEX, REGISTRATION_DAY_COLUMN,
+                                        REGISTRATION_TIME_COLUMN))
+          .billingMode(BillingMode.PAY_PER_REQUEST));
+    }
+
+    int existing = dynamoDB
+        .scanPaginator(builder -> builder
+            .tableName(TABLE_NAME)
+            .select(Select.COUNT))
+        .stream()
+        .mapToInt(page -> page.count())
+        .sum();
+
+    List<WriteRequest> batch = new ArrayList<>(25);
+    for (int i = existing; i < items; i++) {
+      batch.add(WriteRequest
+                    .builder()
+                    .putRequest(PutRequest
+                                    .builder()
+                                    .item(customerItem(i))
+                                    .build())
+                    .build());
+      if (batch.size() == 25 || i == items - 1) {
+        write(dynamoDB, batch);
+        batch = new ArrayList<>(25);
+      }
+    }
+  }
+
+  private static AttributeDefinition attribute(String name, ScalarAttributeType type) {
+    return AttributeDefinition
+        .builder()
+        .attributeName(name)
+        .attributeType(type)
+        .build();
+  }
+
+  private static GlobalSecondaryIndex index(String name, String partitionKey, String sortKey) {
+    List<KeySchemaElement> keySchema = new ArrayList<>();
+    keySchema.add(KeySchemaElement
+                      .builder()
+                      .attributeName(partitionKey)
+                      .keyType(KeyType.HASH)
+                      .build());
+    if (sortKey != null) {
+      keySchema.add(KeySchemaElement
+                        .builder()
+                        .attributeName(sortKey)
+                        .keyType(KeyType.RANGE)
+                        .build());
+    }
+    return GlobalSecondaryIndex
+        .builder()
+        .indexName(name)
+        .keySchema(keySchema)
+        .projection(Projection
+                        .builder()
+                        .projectionType(ProjectionType.ALL)
+                        .build())
+        .build();
+  }
+
+  /**
+   * Customer {@code i} registered {@code i} minutes ago, so the table spans some days of
+   * registrations.
+   */
+  public static Map<String, AttributeValue> customerItem(int i) {
+    Instant registered = Instant
+        .now()
+        .minus(i, ChronoUnit.MINUTES);
+    return Map.of(
+        ID_COLUMN, AttributeValue.fromS(UUID
+                                            .randomUUID()
+                                            .toString()),
+        NAME_COLUMN, AttributeValue.fromS("Customer " + i),
+        EMAIL_COLUMN, AttributeValue.fromS("customer" + i + "@example.com"),
+        ACCOUNT_NUMBER_COLUMN, AttributeValue.fromS(String.format("ACC-%010d", i)),
+        REGISTRATION_DATE_COLUMN, AttributeValue.fromS(FORMATTER.format(registered)),
+        REGISTRATION_DAY_COLUMN, AttributeValue.fromS(DAY_FORMATTER.format(registered)),
+        REGISTRATION_TIME_COLUMN, AttributeValue.fromN(Long.toString(registered.toEpochMilli())));
+  }
+
+  private static void write(DynamoDbClient dynamoDB, List<WriteRequest> batch) {
+    Map<String, List<WriteRequest>> pending = Map.of(TABLE_NAME, batch);
+    while (!pending.isEmpty()) {
+      final Map<String, List<WriteRequest>> requestItems = pending;
+      BatchWriteItemResponse response = dynamoDB.batchWriteItem(
+          builder -> builder.requestItems(requestItems));
+      pending = response.unprocessedItems();
+    }
+  }
+}
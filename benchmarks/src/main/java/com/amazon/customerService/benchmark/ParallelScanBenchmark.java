@@ -0,0 +1,86 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import com.amazon.customerService.service.CustomerService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/**
+ * Full-table read time against DynamoDB Local for an increasing number of scan segments.
+ * <p>
+ * Divide {@code items} by the reported time per operation for items per second. DynamoDB Local
+ * is a single process, so the curve flattens much earlier than against a real table; the number
+ * to watch is how much of the per-page round trip the segments manage to overlap.
+ * <pre>
+ * java -jar target/benchmarks.jar ParallelScanBenchmark -p items=50000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+  @Param({"1", "2", "4", "8", "16"})
+  int segments;
+
+  @Param({"20000"})
+  int items;
+
+  private DynamoDbClient  dynamoDB;
+  private CustomerService customerService;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dynamoDB = LocalDynamoDb.client();
+    LocalDynamoDb.seed(dynamoDB, items);
+    customerService = new CustomerService(dynamoDB, segments, segments);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dynamoDB.close();
+  }
+
+  @Benchmark
+  public void fullTableRead(Blackhole blackhole) {
+    try (Stream<?> customers = customerService.stream()) {
+      customers.forEach(blackhole::consume);
+    }
+  }
+}
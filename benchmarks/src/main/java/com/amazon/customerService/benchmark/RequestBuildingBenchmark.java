@@ -0,0 +1,134 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerCommand;
+import com.amazon.customerService.service.AbstractService;
+import com.amazon.customerService.service.EventBridgeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+
+/**
+ * Cost of building the DynamoDB and EventBridge requests on the service's request paths. No
+ * network involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+  private final Requests requests = new Requests();
+
+  private Map<String, AttributeValue> item;
+  private Customer                    customer;
+  private String                      id;
+  private String                      event;
+  private List<String>                eventBatch;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    item     = LocalDynamoDb.customerItem(42);
+    customer = Customer.from(item);
+    id       = customer.getId();
+    event    = SerializationBenchmark.MAPPER.writeValueAsString(
+        new CustomerCommand(CustomerCommand.ADD, UUID
+            .randomUUID()
+            .toString()));
+
+    eventBatch = new ArrayList<>();
+    for (int i = 0; i < EventBridgeService.MAX_BATCH_SIZE; i++) {
+      eventBatch.add(event);
+    }
+  }
+
+  @Benchmark
+  public Customer customerFrom() {
+    return Customer.from(item);
+  }
+
+  @Benchmark
+  public PutItemRequest putRequest() {
+    return requests.putRequest(customer);
+  }
+
+  @Benchmark
+  public GetItemRequest getRequest() {
+    return requests.getRequest(id);
+  }
+
+  @Benchmark
+  public ScanRequest scanRequest() {
+    return requests.scanRequest();
+  }
+
+  @Benchmark
+  public PutEventsRequest putEventsRequest() {
+    return EventBridgeService.putEventsRequest(event);
+  }
+
+  @Benchmark
+  public PutEventsRequest putEventsBatchRequest() {
+    return EventBridgeService.putEventsRequest(eventBatch);
+  }
+
+  /**
+   * Opens up the request builders, which are only meant for the services.
+   */
+  private static class Requests extends AbstractService {
+
+    @Override
+    protected PutItemRequest putRequest(Customer customer) {
+      return super.putRequest(customer);
+    }
+
+    @Override
+    protected GetItemRequest getRequest(String id) {
+      return super.getRequest(id);
+    }
+
+    @Override
+    protected ScanRequest scanRequest() {
+      return super.scanRequest();
+    }
+  }
+}
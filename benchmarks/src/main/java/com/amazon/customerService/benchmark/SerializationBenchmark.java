@@ -0,0 +1,109 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import com.amazon.customerService.model.Customer;
+import com.amazon.customerService.model.CustomerCommand;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson cost of the JSON the service reads and writes: customer lists for {@code GET
+ * /customers}, single customers, and the {@link CustomerCommand} events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+  /**
+   * Configured like the mapper Quarkus provides to the application.
+   */
+  static final ObjectMapper MAPPER = new ObjectMapper()
+      .findAndRegisterModules()
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private static final TypeReference<List<Customer>> CUSTOMER_LIST = new TypeReference<>() {
+  };
+
+  @Param({"100"})
+  int customers;
+
+  private List<Customer>  customerList;
+  private Customer        customer;
+  private CustomerCommand command;
+  private byte[]          customerListJson;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    customerList = new ArrayList<>(customers);
+    for (int i = 0; i < customers; i++) {
+      customerList.add(Customer.from(LocalDynamoDb.customerItem(i)));
+    }
+    customer         = customerList.get(0);
+    command          = new CustomerCommand(CustomerCommand.ADD, UUID
+        .randomUUID()
+        .toString());
+    customerListJson = MAPPER.writeValueAsBytes(customerList);
+  }
+
+  @Benchmark
+  public byte[] writeCustomerList() throws JsonProcessingException {
+    return MAPPER.writeValueAsBytes(customerList);
+  }
+
+  @Benchmark
+  public List<Customer> readCustomerList() throws IOException {
+    return MAPPER.readValue(customerListJson, CUSTOMER_LIST);
+  }
+
+  @Benchmark
+  public byte[] writeCustomer() throws JsonProcessingException {
+    return MAPPER.writeValueAsBytes(customer);
+  }
+
+  @Benchmark
+  public String writeCustomerCommand() throws JsonProcessingException {
+    return MAPPER.writeValueAsString(command);
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+
+package com.amazon.customerService.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The customer service started as a child process, either the JVM build
+ * ({@code target/quarkus-app/quarkus-run.jar}) or the native executable. Configuration is passed
+ * as system properties, which both accept, and the AWS region and credentials as environment
+ * variables. Output goes to a log file.
+ */
+public final class ServiceProcess implements AutoCloseable {
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+  private final Process process;
+  private final URI     baseUri;
+  private final long    startupMillis;
+  private final long    readyMillis;
+  private final long    firstRequestMillis;
+
+  private ServiceProcess(Process process, URI baseUri, long startupMillis, long readyMillis,
+                         long firstRequestMillis) {
+    this.process            = process;
+    this.baseUri            = baseUri;
+    this.startupMillis      = startupMillis;
+    this.readyMillis        = readyMillis;
+    this.firstRequestMillis = firstRequestMillis;
+  }
+
+  /**
+   * The jar or native executable built by {@code ../application}.
+   */
+  public static Path defaultExecutable(boolean nativeImage) {
+    return Path.of(nativeImage
+                       ? "../application/target/aws-eks-quarkus-example-1.0.0-SNAPSHOT-runner"
+                       : "../application/target/quarkus-app/quarkus-run.jar");
+  }
+
+  /**
+   * Points the service at DynamoDB Local and an {@link EventBridgeStub}. DynamoDB takes the
+   * credentials from the environment instead of the pod's web identity. DynamoDB Local has no
+   * provisioned capacity, so the service's capacity budget is off.
+   */
+  public static Map<String, String> localConfig(String dynamoDbEndpoint, int eventBridgePort) {
+    Map<String, String> config = new HashMap<>();
+    config.put("quarkus.dynamodb.endpoint-override", dynamoDbEndpoint);
+    config.put("quarkus.dynamodb.aws.credentials.type", "default");
+    config.put("customer-service.eventbridge.endpoint", "http://localhost:" + eventBridgePort);
+    config.put("customer-service.capacity.enabled", "false");
+    return config;
+  }
+
+  /**
+   * Starts the service, waits until its liveness check answers and then until its readiness
+   * check reports the warm-up finished, and sends it a one-item list request.
+   *
+   * @param nativeImage whether {@code executable} is a native executable rather than a jar
+   */
+  public static ServiceProcess start(Path executable, boolean nativeImage, List<String> jvmArgs,
+                                     int port, Map<String, String> config, Path log)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    if (nativeImage) {
+      command.add(executable.toString());
+    }
+    else {
+      command.add(Path
+                      .of(System.getProperty("java.home"), "bin", "java")
+                      .toString());
+      command.addAll(jvmArgs);
+    }
+    command.add("-Dquarkus.http.port=" + port);
+    config.forEach((key, value) -> command.add("-D" + key + "=" + value));
+    if (!nativeImage) {
+      command.add("-jar");
+      command.add(executable.toString());
+    }
+
+    Files.createDirectories(log.getParent());
+    ProcessBuilder builder = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(log.toFile());
+    builder
+        .environment()
+        .putAll(Map.of("AWS_REGION", "eu-west-1",
+                       "AWS_ACCESS_KEY_ID", "local",
+                       "AWS_SECRET_ACCESS_KEY", "local"));
+
+    long started = System.nanoTime();
+    Process process = builder.start();
+    URI baseUri = URI.create("http://localhost:" + port);
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      await(client, process, baseUri.resolve("/q/health/live"), log);
+      long live = System.nanoTime();
+      await(client, process, baseUri.resolve("/q/health/ready"), log);
+      long ready = System.nanoTime();
+      HttpResponse<Void> response = client.send(HttpRequest
+                                                    .newBuilder(baseUri.resolve(
+                                                        "/customers?limit=1"))
+                                                    .timeout(STARTUP_TIMEOUT)
+                                                    .build(),
+                                                HttpResponse.BodyHandlers.discarding());
+      long answered = System.nanoTime();
+      if (response.statusCode() != 200) {
+        throw new IOException("First request answered " + response.statusCode() + ", see " + log);
+      }
+      return new ServiceProcess(process, baseUri,
+                                TimeUnit.NANOSECONDS.toMillis(live - started),
+                                TimeUnit.NANOSECONDS.toMillis(ready - started),
+                                TimeUnit.NANOSECONDS.toMillis(answered - ready));
+    }
+    catch (IOException | InterruptedException | RuntimeException exc) {
+      process.destroyForcibly();
+      throw exc;
+    }
+  }
+
+  private static void await(HttpClient client, Process process, URI check, Path log)
+      throws IOException, InterruptedException {
+    HttpRequest probe = HttpRequest
+        .newBuilder(check)
+        .timeout(Duration.ofSeconds(5))
+        .build();
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) {
+        throw new IOException("Service exited with " + process.exitValue() + ", see " + log);
+      }
+      try {
+        if (client
+                .send(probe, HttpResponse.BodyHandlers.discarding())
+                .statusCode() == 200) {
+          return;
+        }
+      }
+      catch (IOException exc) {
+        // not listening yet
+      }
+      Thread.sleep(20);
+    }
+    throw new IOException(check.getPath() + " not up after " + STARTUP_TIMEOUT + ", see " + log);
+  }
+
+  public URI baseUri() {
+    return baseUri;
+  }
+
+  /**
+   * Time from launching the process to its liveness check answering.
+   */
+  public long startupMillis() {
+    return startupMillis;
+  }
+
+  /**
+   * Time from launching the process to its readiness check answering, which waits for the
+   * warm-up.
+   */
+  public long readyMillis() {
+    return readyMillis;
+  }
+
+  /**
+   * Latency of the first request once ready, a one-item list that reads the table, and without
+   * the warm-up also creates the DynamoDB client.
+   */
+  public long firstRequestMillis() {
+    return firstRequestMillis;
+  }
+
+  /**
+   * Peak resident set size so far, or {@code -1} where {@code /proc} is not available.
+   */
+  public long peakRssBytes() {
+    return statusBytes("VmHWM:");
+  }
+
+  /**
+   * Current resident set size, or {@code -1} where {@code /proc} is not available.
+   */
+  public long rssBytes() {
+    return statusBytes("VmRSS:");
+  }
+
+  private long statusBytes(String field) {
+    try {
+      for (String line : Files.readAllLines(Path.of("/proc", Long.toString(process.pid()),
+                                                    "status"))) {
+        if (line.startsWith(field)) {
+          return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+        }
+      }
+    }
+    catch (IOException | NumberFormatException exc) {
+      // not Linux, or already gone
+    }
+    return -1;
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    process.destroy();
+    if (!process.waitFor(15, TimeUnit.SECONDS)) {
+      process.destroyForcibly();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: MIT-0
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.amazon.customerService.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup cost of the JVM and native builds. Launches the service {@code startup.runs} times per
+ * mode against DynamoDB Local and an in-process {@link EventBridgeStub} and reports the time from
+ * launch to the liveness and the readiness check answering, the latency of the first request once
+ * ready, a one-item list that reads the table, and the resident set size right after it. Modes
+ * whose build is missing are skipped. Configured with system properties, see the README.
+ */
+public final class StartupBenchmark {
+
+  private StartupBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> modes = Arrays.asList(System
+                                           .getProperty("startup.modes", "jvm,native")
+                                           .split(","));
+    int runs = Integer.getInteger("startup.runs", 5);
+    int port = Integer.getInteger("startup.port", 8080);
+    String jvmArgs = System
+        .getProperty("startup.jvm-args", "")
+        .trim();
+    Path output = Path.of(System.getProperty("startup.output", "target/startup"));
+
+    LocalDynamoDb.seed(LocalDynamoDb.client(), Integer.getInteger("startup.items", 100));
+
+    try (EventBridgeStub stub = EventBridgeStub.start(0, 0, 0)) {
+      Map<String, String> config = ServiceProcess.localConfig(
+          System.getProperty("dynamodb.endpoint", "http://localhost:8000"), stub.port());
+      config.put("customer-service.events.spool.directory", output
+          .resolve("spool")
+          .toAbsolutePath()
+          .toString());
+
+      System.out.printf("%-6s  %4s  %24s  %22s  %30s  %20s  %11s%n", "Mode", "Runs",
+                        "Started ms (min/med/max)", "Ready ms (min/med/max)",
+                        "First request ms (min/med/max)",
+                        "RSS MB (min/med/max)", "Peak RSS MB");
+      for (String mode : modes) {
+        boolean nativeImage = mode.equals("native");
+        if (!nativeImage && !mode.equals("jvm")) {
+          throw new IllegalArgumentException("startup.modes takes jvm and native: " + mode);
+        }
+        Path executable = System.getProperty("startup." + mode) == null
+            ? ServiceProcess.defaultExecutable(nativeImage)
+            : Path.of(System.getProperty("startup." + mode));
+        if (!Files.exists(executable)) {
+          System.out.printf("%-6s  skipped, %s not built%n", mode, executable);
+          continue;
+        }
+
+        long[] started = new long[runs];
+        long[] ready = new long[runs];
+        long[] firstRequest = new long[runs];
+        long[] rss = new long[runs];
+        long[] peakRss = new long[runs];
+        for (int i = 0; i < runs; i++) {
+          try (ServiceProcess service = ServiceProcess.start(
+              executable, nativeImage,
+              nativeImage || jvmArgs.isEmpty() ? List.of() : Arrays.asList(jvmArgs.split("\\s+")),
+              port, config, output.resolve(mode + "-" + i + ".log"))) {
+            started[i]      = service.startupMillis();
+            ready[i]        = service.readyMillis();
+            firstRequest[i] = service.firstRequestMillis();
+            rss[i]          = service.rssBytes() >> 20;
+            peakRss[i]      = service.peakRssBytes() >> 20;
+          }
+        }
+        System.out.printf("%-6s  %4d  %24s  %22s  %30s  %20s  %11d%n", mode, runs,
+                          spread(started), spread(ready), spread(firstRequest), spread(rss),
+                          median(peakRss));
+      }
+    }
+  }
+
+  private static String spread(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[0] + " / " + median(sorted) + " / " + sorted[sorted.length - 1];
+  }
+
+  private static long median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
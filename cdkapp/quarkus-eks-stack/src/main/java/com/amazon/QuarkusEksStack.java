@@ -34,6 +34,8 @@ import software.amazon.awscdk.services.autoscaling.AutoScalingGroup;
 import software.amazon.awscdk.services.autoscaling.UpdatePolicy;
 import software.amazon.awscdk.services.dynamodb.Attribute;
 import software.amazon.awscdk.services.dynamodb.AttributeType;
+import software.amazon.awscdk.services.dynamodb.GlobalSecondaryIndexProps;
+import software.amazon.awscdk.services.dynamodb.ProjectionType;
 import software.amazon.awscdk.services.dynamodb.Table;
 import software.amazon.awscdk.services.ec2.InstanceClass;
 import software.amazon.awscdk.services.ec2.InstanceSize;
@@ -195,6 +197,59 @@ public class QuarkusEksStack extends Stack {
         .removalPolicy(RemovalPolicy.DESTROY)
         .build();
 
+    // Lookups by email and account number query the first two instead of scanning the table,
+    // recent registrations the third, one partition per UTC day, newest first within the day
+    List<GlobalSecondaryIndexProps> indexes = List.of(
+        GlobalSecondaryIndexProps
+            .builder()
+            .indexName("EmailIndex")
+            .partitionKey(Attribute
+                              .builder()
+                              .name("Email")
+                              .type(AttributeType.STRING)
+                              .build())
+            .projectionType(ProjectionType.ALL)
+            .readCapacity(5)
+            .writeCapacity(5)
+            .build(),
+        GlobalSecondaryIndexProps
+            .builder()
+            .indexName("AccountNumberIndex")
+            .partitionKey(Attribute
+                              .builder()
+                              .name("AccountNumber")
+                              .type(AttributeType.STRING)
+                              .build())
+            .projectionType(ProjectionType.ALL)
+            .readCapacity(5)
+            .writeCapacity(5)
+            .build(),
+        GlobalSecondaryIndexProps
+            .builder()
+            .indexName("RegistrationIndex")
+            .partitionKey(Attribute
+                              .builder()
+                              .name("RegistrationDay")
+                              .type(AttributeType.STRING)
+                              .build())
+            .sortKey(Attribute
+                         .builder()
+                         .name("RegistrationTime")
+                         .type(AttributeType.NUMBER)
+                         .build())
+            .projectionType(ProjectionType.ALL)
+            .readCapacity(5)
+            .writeCapacity(5)
+            .build());
+
+    // CloudFormation creates at most one index per table update. A new stack gets all of them,
+    // an existing one is brought up to date one deployment at a time with -c customerIndexes=1,
+    // then 2 and so on
+    int indexCount = Math.min(indexes.size(), customerIndexes());
+    indexes
+        .subList(0, indexCount)
+        .forEach(table::addGlobalSecondaryIndex);
+
     table.grantReadWriteData(serviceAccount);
 
     // And we need to create an EventBridge EventBus
@@ -220,4 +275,13 @@ public class QuarkusEksStack extends Stack {
         .create(this, "ECR Repository")
         .value(ecrRepo.getRepositoryName());
   }
+
+  /**
+   * Number of the table's global secondary indexes to deploy, from the {@code customerIndexes}
+   * context value. All of them by default.
+   */
+  private int customerIndexes() {
+    Object value = getNode().tryGetContext("customerIndexes");
+    return value == null ? Integer.MAX_VALUE : Integer.parseInt(value.toString());
+  }
 }